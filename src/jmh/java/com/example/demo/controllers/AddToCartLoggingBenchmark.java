@@ -0,0 +1,135 @@
+package com.example.demo.controllers;
+
+import com.example.demo.SareetaApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives {@code POST /api/cart/addToCart} over HTTP at a fixed overall rate and samples
+ * its latency (read p99 from the SampleTime percentiles), once with every logger
+ * asynchronous and once with the synchronous Log4j2 context selector. Each thread
+ * follows an add with a {@code removeFromCart} of the same unit, so the cart, and the
+ * response listing it, stays at a few units however long the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(8)
+@Fork(1)
+public class AddToCartLoggingBenchmark {
+    private static final String USERNAME = "benchmark";
+    private static final String PASSWORD = "benchmarkPassword";
+    private static final String ASYNC_SELECTOR = "org.apache.logging.log4j.core.async.AsyncLoggerContextSelector";
+    private static final String SYNC_SELECTOR = "org.apache.logging.log4j.core.selector.ClassLoaderContextSelector";
+
+    @Param({"async", "sync"})
+    private String logging;
+
+    @Param({"1000"})
+    private int requestsPerSecond;
+
+    private ConfigurableApplicationContext context;
+    private URL addToCart;
+    private URL removeFromCart;
+    private String token;
+    private long intervalNanos;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) throws IOException {
+        // Must be decided before the first logger is created in this fork
+        System.setProperty("log4j2.contextSelector", "async".equals(logging) ? ASYNC_SELECTOR : SYNC_SELECTOR);
+        context = new SpringApplicationBuilder(SareetaApplication.class)
+                .run("--server.port=0", "--logging.file=logs/benchmark.log");
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+        post(new URL(base + "/api/user/create"), "{\"username\":\"" + USERNAME + "\",\"password\":\""
+                + PASSWORD + "\",\"confirmPassword\":\"" + PASSWORD + "\"}", null);
+        HttpURLConnection login = post(new URL(base + "/login"),
+                "{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD + "\"}", null);
+        token = login.getHeaderField("Authorization");
+
+        addToCart = new URL(base + "/api/cart/addToCart");
+        removeFromCart = new URL(base + "/api/cart/removeFromCart");
+        intervalNanos = TimeUnit.SECONDS.toNanos(1) * params.getThreads() / requestsPerSecond;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Per-thread pacing. Waiting happens in an invocation-level setup so it is not
+     * part of the sampled time; a thread that falls behind sends immediately.
+     */
+    @State(Scope.Thread)
+    public static class Pacer {
+        private long next;
+        private boolean added;
+
+        @Setup(Level.Invocation)
+        public void awaitSlot(AddToCartLoggingBenchmark benchmark) {
+            long now = System.nanoTime();
+            if (next == 0 || next < now) {
+                next = now;
+            } else {
+                LockSupport.parkNanos(next - now);
+            }
+            next += benchmark.intervalNanos;
+        }
+    }
+
+    @Benchmark
+    public int addOrRemove(Pacer pacer) throws IOException {
+        pacer.added = !pacer.added;
+        return post(pacer.added ? addToCart : removeFromCart,
+                "{\"username\":\"" + USERNAME + "\",\"itemId\":1,\"quantity\":1}", token).getResponseCode();
+    }
+
+    private static HttpURLConnection post(URL url, String body, String token) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        if (token != null) {
+            connection.setRequestProperty("Authorization", token);
+        }
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        // Drain the body so the keep-alive connection goes back to the pool
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) != -1) {
+                // discard
+            }
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.demo.model.persistence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filling, adding to, removal, membership and per-item count on carts of increasing
+ * size, next to the linear {@code List.remove(item)} scan the cart used before it was
+ * indexed by item id.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartBenchmark {
+
+	@Param({"10", "1000", "100000"})
+	private int entries;
+
+	private Cart cart;
+	private List<Item> itemList;
+	private Item middle;
+	private Item absent;
+
+	@Setup
+	public void setUp() {
+		cart = new Cart();
+		itemList = new ArrayList<>(entries);
+		for (int i = 0; i < entries; i++) {
+			Item item = new Item();
+			item.setId((long) i);
+			item.setName("Item " + i);
+			item.setPrice(BigDecimal.valueOf(i % 100, 2));
+			item.setDescription("Benchmark item");
+			cart.addItem(item);
+			itemList.add(item);
+		}
+		middle = itemList.get(entries / 2);
+		absent = new Item();
+		absent.setId((long) entries);
+		absent.setName("Absent item");
+		absent.setPrice(BigDecimal.ONE);
+		absent.setDescription("Benchmark item");
+	}
+
+	@Benchmark
+	public Cart fillCart() {
+		Cart filled = new Cart();
+		for (Item item : itemList) {
+			filled.addItem(item);
+		}
+		return filled;
+	}
+
+	@Benchmark
+	public Cart addAndRemoveNewItem() {
+		cart.addItem(absent);
+		cart.removeItem(absent);
+		return cart;
+	}
+
+	@Benchmark
+	public Cart removeAndReAdd() {
+		cart.removeItem(middle);
+		cart.addItem(middle);
+		return cart;
+	}
+
+	@Benchmark
+	public boolean containsItem() {
+		return cart.containsItem(middle.getId());
+	}
+
+	@Benchmark
+	public int quantityOfItem() {
+		return cart.getQuantity(middle.getId());
+	}
+
+	@Benchmark
+	public List<Item> listRemoveAndReAddBaseline() {
+		itemList.remove(middle);
+		itemList.add(middle);
+		return itemList;
+	}
+}
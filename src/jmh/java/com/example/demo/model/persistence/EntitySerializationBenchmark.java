@@ -0,0 +1,71 @@
+package com.example.demo.model.persistence;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing the {@link Cart} and {@link UserOrder} response bodies with an object mapper
+ * configured like the application's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntitySerializationBenchmark {
+	private static final int QUANTITY = 2;
+
+	@Param({"10", "1000"})
+	private int lines;
+
+	private ObjectMapper objectMapper;
+	private Cart cart;
+	private UserOrder order;
+
+	@Setup
+	public void setUp() {
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		User user = new User();
+		user.setId(1L);
+		user.setUsername("benchmark");
+		cart = new Cart();
+		cart.setId(1L);
+		cart.setUser(user);
+		for (int i = 0; i < lines; i++) {
+			Item item = new Item();
+			item.setId((long) i);
+			item.setName("Item " + i);
+			item.setPrice(BigDecimal.valueOf(i % 100, 2));
+			item.setDescription("Benchmark item");
+			cart.addItem(item, QUANTITY);
+		}
+		order = UserOrder.createFromCart(cart);
+		order.setId(1L);
+	}
+
+	@Benchmark
+	public byte[] cart() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(cart);
+	}
+
+	@Benchmark
+	public byte[] order() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(order);
+	}
+}
@@ -0,0 +1,69 @@
+package com.example.demo.model.persistence;
+
+import java.util.List;
+
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.OrderColumn;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Immutable;
+
+/**
+ * {@link UserOrder} as it is mapped, except that the id is an IDENTITY column as it
+ * was before orders moved to a pooled sequence. Only on the benchmark classpath, as
+ * the baseline for {@code OrderInsertBenchmark}.
+ */
+@Entity
+@Table(name = "identity_user_order")
+public class IdentityUserOrder {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@ElementCollection
+	@Immutable
+	@CollectionTable(name = "identity_order_line", joinColumns = @JoinColumn(name = "order_id"))
+	@OrderColumn(name = "line_no")
+	private List<OrderLine> lines;
+
+	@ManyToOne
+	@JoinColumn(name = "user_id", nullable = false, referencedColumnName = "id")
+	private User user;
+
+	@Column(precision = 19, scale = Money.SCALE)
+	@Convert(converter = MoneyConverter.class)
+	private long total;
+
+	@Column
+	private Integer itemCount;
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setLines(List<OrderLine> lines) {
+		this.lines = lines;
+	}
+
+	public void setUser(User user) {
+		this.user = user;
+	}
+
+	public void setTotalCents(long totalCents) {
+		this.total = totalCents;
+	}
+
+	public void setItemCount(Integer itemCount) {
+		this.itemCount = itemCount;
+	}
+}
@@ -0,0 +1,74 @@
+package com.example.demo.model.persistence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adding units to and removing them from a cart, which keeps its total in cents, next
+ * to the same running total kept as a {@link BigDecimal}. Run with {@code -prof gc}
+ * (the {@code jmh} profile's default) to compare the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+	private static final int QUANTITY = 3;
+
+	@Param({"10", "1000"})
+	private int lines;
+
+	private Cart cart;
+	private List<Item> items;
+	private BigDecimal total;
+
+	@Setup
+	public void setUp() {
+		cart = new Cart();
+		items = new ArrayList<>(lines);
+		total = BigDecimal.ZERO;
+		for (int i = 0; i < lines; i++) {
+			Item item = new Item();
+			item.setId((long) i);
+			item.setName("Item " + i);
+			item.setPrice(BigDecimal.valueOf(100 + i % 900, 2));
+			item.setDescription("Benchmark item");
+			cart.addItem(item, QUANTITY);
+			items.add(item);
+		}
+	}
+
+	@Benchmark
+	public long addAndRemoveUnits() {
+		for (Item item : items) {
+			cart.addItem(item, QUANTITY);
+			cart.removeItem(item, QUANTITY);
+		}
+		return cart.getTotalCents();
+	}
+
+	@Benchmark
+	public BigDecimal bigDecimalTotalBaseline() {
+		for (Item item : items) {
+			total = total.add(item.getPrice().multiply(BigDecimal.valueOf(QUANTITY)));
+			total = total.subtract(item.getPrice().multiply(BigDecimal.valueOf(QUANTITY)));
+		}
+		return total;
+	}
+}
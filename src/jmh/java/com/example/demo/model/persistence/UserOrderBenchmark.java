@@ -0,0 +1,65 @@
+package com.example.demo.model.persistence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning carts of one to many distinct items, each bought several times, into an order.
+ * A cart as the {@code jpa} engine loads it builds its order lines on every call; one
+ * that keeps them, as the {@code memory} engine's carts do, hands them out as they are.
+ * This is only the step in memory: {@code OrderSubmitBenchmark} covers loading the cart
+ * and writing the order as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserOrderBenchmark {
+	private static final int QUANTITY = 3;
+
+	@Param({"1", "100", "10000"})
+	private int lines;
+
+	@Param({"false", "true"})
+	private boolean kept;
+
+	private Cart cart;
+
+	@Setup
+	public void setUp() {
+		User user = new User();
+		user.setUsername("benchmark");
+		cart = new Cart();
+		cart.setUser(user);
+		if (kept) {
+			cart.keepOrderLines();
+		}
+		for (int i = 0; i < lines; i++) {
+			Item item = new Item();
+			item.setId((long) i);
+			item.setName("Item " + i);
+			item.setPrice(BigDecimal.valueOf(i % 100, 2));
+			item.setDescription("Benchmark item");
+			cart.addItem(item, QUANTITY);
+		}
+	}
+
+	@Benchmark
+	public UserOrder createFromCart() {
+		return UserOrder.createFromCart(cart);
+	}
+}
@@ -0,0 +1,127 @@
+package com.example.demo.orders;
+
+import com.example.demo.SareetaApplication;
+import com.example.demo.model.persistence.IdentityUserOrder;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves a 500-line order against the embedded database with and without the
+ * {@code batching} persistence profile, with the order id taken from the pooled
+ * sequence ({@code sequence}) or from an IDENTITY column as before ({@code identity},
+ * through {@link IdentityUserOrder}). Each invocation writes the order row plus one
+ * line row per line, so the reported throughput is inserted rows per second. The
+ * orders are deleted after every iteration so the tables do not keep growing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderInsertBenchmark {
+    private static final int LINES = 500;
+
+    @Param({"default", "batching"})
+    private String profile;
+
+    @Param({"sequence", "identity"})
+    private String ids;
+
+    private ConfigurableApplicationContext context;
+    private OrderRepository orderRepository;
+    private UserRepository userRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+    private long userId;
+    private List<OrderLine> lines;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SareetaApplication.class)
+                .profiles(profile)
+                .run("--server.port=0", "--logging.level.root=WARN",
+                        "--spring.datasource.url=jdbc:h2:mem:order-insert-" + profile + "-" + ids + ";DB_CLOSE_DELAY=-1");
+        orderRepository = context.getBean(OrderRepository.class);
+        userRepository = context.getBean(UserRepository.class);
+        entityManager = context.getBean(EntityManager.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        User user = new User();
+        user.setUsername("benchmark");
+        user.setPassword("benchmarkPassword");
+        userId = userRepository.save(user).getId();
+
+        lines = new ArrayList<>(LINES);
+        for (int i = 0; i < LINES; i++) {
+            lines.add(new OrderLine(i, "Benchmark Item " + i, i % 1000, 1 + i % 3));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteOrders() {
+        jdbcTemplate.update("delete from order_line");
+        jdbcTemplate.update("delete from user_order");
+        jdbcTemplate.update("delete from identity_order_line");
+        jdbcTemplate.update("delete from identity_user_order");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES + 1)
+    public Long saveOrder() {
+        if ("identity".equals(ids)) {
+            return transactionTemplate.execute(status -> {
+                IdentityUserOrder order = new IdentityUserOrder();
+                order.setUser(userRepository.getOne(userId));
+                order.setLines(lines);
+                order.setTotalCents(0);
+                order.setItemCount(LINES);
+                entityManager.persist(order);
+                return order.getId();
+            });
+        }
+        return transactionTemplate.execute(status -> {
+            UserOrder order = new UserOrder();
+            order.setUser(userRepository.getOne(userId));
+            order.setLines(lines);
+            order.setTotal(BigDecimal.ZERO);
+            order.setItemCount(LINES);
+            return orderRepository.save(order).getId();
+        });
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.demo.orders;
+
+import com.example.demo.SareetaApplication;
+import com.example.demo.controllers.OrderController;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Submits the same cart of 1, 100 and 10 000 distinct items as an order, with the cart
+ * read from the database ({@code jpa}) or kept in memory ({@code memory}). Each call
+ * turns the cart into an order and writes the order with its lines; the orders are
+ * deleted after every iteration so the tables do not keep growing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderSubmitBenchmark {
+    private static final String USERNAME = "benchmark";
+
+    @Param({"1", "100", "10000"})
+    private int lines;
+
+    @Param({"jpa", "memory"})
+    private String engine;
+
+    private ConfigurableApplicationContext context;
+    private OrderController orderController;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SareetaApplication.class)
+                .run("--server.port=0", "--logging.level.root=WARN", "--cart.engine=" + engine,
+                        "--spring.datasource.url=jdbc:h2:mem:order-submit-" + engine + "-" + lines + ";DB_CLOSE_DELAY=-1");
+        orderController = context.getBean(OrderController.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        ItemRepository itemRepository = context.getBean(ItemRepository.class);
+        CartRepository cartRepository = context.getBean(CartRepository.class);
+
+        List<Item> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            Item item = new Item();
+            item.setName("Benchmark Item " + i);
+            item.setPrice(BigDecimal.valueOf(100 + i % 1000, 2));
+            item.setDescription("An item for the order submit benchmark");
+            items.add(item);
+        }
+        List<Item> saved = itemRepository.saveAll(items);
+
+        User user = new User();
+        user.setUsername(USERNAME);
+        user.setPassword("benchmarkPassword");
+        user.setCart(new Cart());
+        long cartId = context.getBean(UserRepository.class).save(user).getCart().getId();
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).execute(status -> {
+            Cart cart = cartRepository.findWithLinesById(cartId).get();
+            for (Item item : saved) {
+                cart.addItem(item, 2);
+            }
+            return cartRepository.save(cart);
+        });
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteOrders() {
+        jdbcTemplate.update("delete from order_line");
+        jdbcTemplate.update("delete from user_order");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserOrder submit() {
+        return orderController.submit(USERNAME).getBody();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.demo.search;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up items matching "round widg" in a catalog of one million items, once through
+ * {@link ItemSearchIndex} and once with the SQL an unindexed text search needs against
+ * the H2 item table. Ranking needs every match, so the SQL reads all of them, with no
+ * {@code order by} or {@code limit} that would let H2 stop early along the primary key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ItemSearchBenchmark {
+    private static final String[] SHAPES = {"Round", "Square", "Oval", "Flat", "Tall", "Tiny", "Huge", "Spiral"};
+    private static final String[] KINDS = {"Widget", "Gadget", "Gizmo", "Doohickey", "Sprocket"};
+
+    @Param({"1000000"})
+    private int items;
+
+    private ItemSearchIndex index;
+    private Connection connection;
+    private PreparedStatement scan;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        List<Item> catalog = new ArrayList<>(items);
+        connection = DriverManager.getConnection("jdbc:h2:mem:search-benchmark;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("create table item (id bigint primary key, name varchar(255) not null, "
+                    + "price decimal(19, 2) not null, description varchar(255) not null)");
+        }
+        try (PreparedStatement insert = connection.prepareStatement("insert into item values (?, ?, ?, ?)")) {
+            for (int i = 1; i <= items; i++) {
+                Item item = new Item();
+                item.setId((long) i);
+                item.setName(SHAPES[i % SHAPES.length] + " " + KINDS[(i / SHAPES.length) % KINDS.length] + " " + i);
+                item.setPrice(BigDecimal.valueOf(i % 10_000, 2));
+                item.setDescription("A " + item.getName().toLowerCase() + " for benchmarking");
+                catalog.add(item);
+
+                insert.setLong(1, item.getId());
+                insert.setString(2, item.getName());
+                insert.setBigDecimal(3, item.getPrice());
+                insert.setString(4, item.getDescription());
+                insert.addBatch();
+                if (i % 10_000 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        scan = connection.prepareStatement("select id, name, price, description from item "
+                + "where lower(name) like ? or lower(description) like ?");
+
+        ItemRepository repository = Mockito.mock(ItemRepository.class);
+        Mockito.when(repository.findAll()).thenReturn(catalog);
+        index = new ItemSearchIndex(repository);
+        index.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement drop = connection.createStatement()) {
+            drop.execute("drop table item");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public List<Item> invertedIndex() {
+        return index.search("round widg", 20);
+    }
+
+    @Benchmark
+    public List<Item> sqlScan() throws SQLException {
+        scan.setString(1, "%round widg%");
+        scan.setString(2, "%round widg%");
+        List<Item> result = new ArrayList<>();
+        try (ResultSet rs = scan.executeQuery()) {
+            while (rs.next()) {
+                Item item = new Item();
+                item.setId(rs.getLong(1));
+                item.setName(rs.getString(2));
+                item.setPrice(rs.getBigDecimal(3));
+                item.setDescription(rs.getString(4));
+                result.add(item);
+            }
+        }
+        return result;
+    }
+}
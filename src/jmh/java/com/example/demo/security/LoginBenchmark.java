@@ -0,0 +1,83 @@
+package com.example.demo.security;
+
+import com.example.demo.SareetaApplication;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserCredentials;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.LoginRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The part of a login that comes before the password check: reading the request body
+ * and fetching the stored hash on a user cache miss. {@code entityLogin} is the previous
+ * path, a fresh {@link ObjectMapper} into the {@link User} entity and a full user load
+ * with its cart; {@code credentialsLogin} is the shared reader into {@link LoginRequest}
+ * and the two-column projection. The {@code gc} profiler of the {@code jmh} build
+ * profile reports the allocation per login alongside the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginBenchmark {
+    private static final String USERNAME = "benchmark";
+
+    private final byte[] body = ("{\"username\":\"" + USERNAME + "\",\"password\":\"benchmarkPassword\"}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SareetaApplication.class)
+                .run("--server.port=0", "--logging.level.root=WARN",
+                        "--spring.datasource.url=jdbc:h2:mem:login-benchmark;DB_CLOSE_DELAY=-1");
+        userRepository = context.getBean(UserRepository.class);
+
+        User user = new User();
+        user.setUsername(USERNAME);
+        user.setPassword("benchmarkHash");
+        user.setCart(new Cart());
+        userRepository.save(user);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String entityLogin() throws IOException {
+        User credentials = new ObjectMapper().readValue(body, User.class);
+        return userRepository.findByUsername(credentials.getUsername()).getPassword();
+    }
+
+    @Benchmark
+    public String credentialsLogin() throws IOException {
+        LoginRequest credentials = JWTAuthenticationFilter.CREDENTIALS_READER.readValue(body);
+        UserCredentials stored = userRepository.findCredentialsByUsername(credentials.getUsername());
+        return stored.getPassword();
+    }
+}
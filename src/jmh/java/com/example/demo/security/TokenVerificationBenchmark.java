@@ -0,0 +1,70 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signs a token as {@link TokenService} does on login, and compares verifying
+ * it the way the filter used to (building the HMAC algorithm and verifier per request)
+ * with the signing key's prebuilt {@link JWTVerifier} on its own and with the caching
+ * {@link JWTTokenVerifier} that picks it by key id.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenVerificationBenchmark {
+    private static final long TTL_MILLIS = 900_000;
+
+    private SigningKeys signingKeys;
+    private String token;
+    private JWTVerifier sharedVerifier;
+    private JWTTokenVerifier cachingVerifier;
+
+    @Setup
+    public void setUp() {
+        signingKeys = SigningKeys.of(SigningKeys.DEFAULT_KEY_ID,
+                Collections.singletonMap(SigningKeys.DEFAULT_KEY_ID, SecurityConstants.SECRET));
+        token = TokenService.createToken("benchmark", signingKeys.active(), TTL_MILLIS);
+        sharedVerifier = signingKeys.active().getVerifier();
+        cachingVerifier = new JWTTokenVerifier(signingKeys);
+    }
+
+    @Benchmark
+    public String sign() {
+        return TokenService.createToken("benchmark", signingKeys.active(), TTL_MILLIS);
+    }
+
+    @Benchmark
+    public String verifierPerRequest() {
+        return JWT.require(Algorithm.HMAC512(SecurityConstants.SECRET.getBytes())).build()
+                .verify(token)
+                .getSubject();
+    }
+
+    @Benchmark
+    public String sharedVerifier() {
+        return sharedVerifier.verify(token).getSubject();
+    }
+
+    @Benchmark
+    public String cachedVerifier() {
+        return cachingVerifier.verify(token);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.metrics.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and failures seen by the load generator for one endpoint. Failed requests
+ * are timed as well.
+ */
+public class EndpointStats {
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    void record(long nanos, boolean failed) {
+        latency.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getRequests() {
+        return latency.getCount();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public double getErrorRate() {
+        long requests = getRequests();
+        return requests == 0 ? 0.0 : (double) getErrors() / requests;
+    }
+
+    public long percentile(double percentile) {
+        return latency.valueAtPercentile(percentile);
+    }
+}
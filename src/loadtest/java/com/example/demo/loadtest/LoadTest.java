@@ -0,0 +1,158 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.SareetaApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator for the whole application. Boots {@link SareetaApplication} on a random
+ * port with an in-memory H2 database (or targets {@code load.target-url} if set), runs
+ * {@code load.users} virtual users through a weighted mix of sign-ups, logins, catalog
+ * reads, cart changes, order submissions and history reads, and prints throughput,
+ * latency percentiles and error rates per endpoint.
+ *
+ * <p>Settings are system properties:
+ * <ul>
+ *     <li>{@code load.users} - concurrent virtual users (default 16)</li>
+ *     <li>{@code load.duration} - measured duration, ISO-8601 or seconds (default 60)</li>
+ *     <li>{@code load.warmup} - unmeasured warm-up before that (default 10)</li>
+ *     <li>{@code load.seed} - seed for the request mix, so runs are repeatable (default 42)</li>
+ *     <li>{@code load.target-url} - base URL of an already running instance (empty or
+ *     unset starts the application in-process)</li>
+ * </ul>
+ */
+public class LoadTest {
+    private final String baseUrl;
+    private final int users;
+    private final Duration warmup;
+    private final Duration duration;
+    private final long seed;
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+    public LoadTest(String baseUrl, int users, Duration warmup, Duration duration, long seed) {
+        this.baseUrl = baseUrl;
+        this.users = users;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("load.users", 16);
+        Duration warmup = duration(System.getProperty("load.warmup", "10"));
+        Duration duration = duration(System.getProperty("load.duration", "60"));
+        long seed = Long.getLong("load.seed", 42L);
+        String targetUrl = System.getProperty("load.target-url");
+
+        ConfigurableApplicationContext context = null;
+        // The Maven profile always passes the property, empty when no target is given
+        if (targetUrl == null || targetUrl.isEmpty()) {
+            context = new SpringApplicationBuilder(SareetaApplication.class).run(
+                    "--server.port=0",
+                    "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                    "--logging.level.root=WARN");
+            targetUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            new LoadTest(targetUrl, users, warmup, duration, seed).run().print(System.out);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    public Report run() throws Exception {
+        List<Long> itemIds = new ArrayList<>();
+        JsonNode items = new ObjectMapper().readTree(new VirtualUser(this, "catalog-" + System.currentTimeMillis(), seed).fetchCatalog());
+        for (JsonNode item : items) {
+            itemIds.add(item.get("id").asLong());
+        }
+        if (itemIds.isEmpty()) {
+            throw new IllegalStateException("The catalog at " + baseUrl + " has no items to order");
+        }
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long stopAt = measureFrom + duration.toNanos();
+        // Usernames are unique per run so repeated runs against one instance do not collide
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        List<Thread> threads = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            VirtualUser user = new VirtualUser(this, "load-" + run + "-" + i, seed + i);
+            Thread thread = new Thread(() -> user.run(itemIds, measureFrom, stopAt), "virtual-user-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return new Report(new TreeMap<>(stats), duration, users);
+    }
+
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    EndpointStats stats(String endpoint) {
+        EndpointStats endpointStats = stats.get(endpoint);
+        return endpointStats != null ? endpointStats : stats.computeIfAbsent(endpoint, name -> new EndpointStats());
+    }
+
+    private static Duration duration(String value) {
+        return value.startsWith("P") ? Duration.parse(value) : Duration.ofSeconds(Long.parseLong(value));
+    }
+
+    public static class Report {
+        private final Map<String, EndpointStats> endpoints;
+        private final Duration duration;
+        private final int users;
+
+        Report(Map<String, EndpointStats> endpoints, Duration duration, int users) {
+            this.endpoints = endpoints;
+            this.duration = duration;
+            this.users = users;
+        }
+
+        public Map<String, EndpointStats> getEndpoints() {
+            return endpoints;
+        }
+
+        public void print(PrintStream out) {
+            double seconds = duration.toNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+            out.printf("%d virtual users, %.0f s measured%n", users, seconds);
+            out.printf("%-40s %9s %9s %8s %9s %9s %9s %9s %9s%n",
+                    "endpoint", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+            long requests = 0;
+            long errors = 0;
+            for (Map.Entry<String, EndpointStats> entry : endpoints.entrySet()) {
+                EndpointStats endpoint = entry.getValue();
+                requests += endpoint.getRequests();
+                errors += endpoint.getErrors();
+                out.printf("%-40s %9d %9.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                        entry.getKey(), endpoint.getRequests(), endpoint.getRequests() / seconds,
+                        endpoint.getErrorRate() * 100,
+                        millis(endpoint.percentile(50)), millis(endpoint.percentile(90)),
+                        millis(endpoint.percentile(99)), millis(endpoint.percentile(99.9)),
+                        millis(endpoint.getLatency().getMax()));
+            }
+            out.printf("%-40s %9d %9.1f %7.2f%%%n", "total", requests, requests / seconds,
+                    requests == 0 ? 0.0 : errors * 100.0 / requests);
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.demo.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * One simulated shopper. Signs up and logs in, then keeps picking weighted actions
+ * until the test ends; now and then it starts over as a new user so sign-up and login
+ * stay part of the mix.
+ */
+class VirtualUser {
+    private static final String PASSWORD = "loadTestPassword";
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final LoadTest test;
+    private final String namePrefix;
+    private final Random random;
+    private int sessions;
+    private String username;
+    private String token;
+    private int cartUnits;
+    private boolean measuring;
+
+    VirtualUser(LoadTest test, String namePrefix, long seed) {
+        this.test = test;
+        this.namePrefix = namePrefix;
+        this.random = new Random(seed);
+    }
+
+    void run(List<Long> itemIds, long measureFrom, long stopAt) {
+        signUpAndLogIn();
+        long now;
+        while ((now = System.nanoTime()) < stopAt) {
+            measuring = now >= measureFrom;
+            int roll = random.nextInt(100);
+            if (roll < 35) {
+                call("GET /api/item", "GET", "/api/item", null);
+            } else if (roll < 60 || (roll < 80 && cartUnits == 0)) {
+                int quantity = 1 + random.nextInt(3);
+                readCart(call("POST /api/cart/addToCart", "POST", "/api/cart/addToCart", cartRequest(itemIds, quantity)));
+            } else if (roll < 70) {
+                readCart(call("POST /api/cart/removeFromCart", "POST", "/api/cart/removeFromCart", cartRequest(itemIds, 1)));
+            } else if (roll < 80) {
+                // Accepting the order empties the cart; an empty cart is refused with 400
+                Response submitted = call("POST /api/order/submit/{username}/async", "POST",
+                        "/api/order/submit/" + username + "/async", null);
+                if (ok(submitted) || submitted.status == 400) {
+                    cartUnits = 0;
+                }
+            } else if (roll < 95) {
+                call("GET /api/order/history/{username}/page", "GET", "/api/order/history/" + username + "/page", null);
+            } else {
+                signUpAndLogIn();
+            }
+        }
+    }
+
+    /**
+     * Signs up a fresh user and fetches the catalog without recording either request.
+     */
+    String fetchCatalog() {
+        signUpAndLogIn();
+        Response catalog = call("GET /api/item", "GET", "/api/item", null);
+        if (!ok(catalog)) {
+            throw new IllegalStateException("Could not read the catalog: HTTP " + catalog.status);
+        }
+        return catalog.body;
+    }
+
+    private void signUpAndLogIn() {
+        username = namePrefix + "-" + sessions++;
+        token = null;
+        cartUnits = 0;
+        call("POST /api/user/create", "POST", "/api/user/create", "{\"username\":\"" + username
+                + "\",\"password\":\"" + PASSWORD + "\",\"confirmPassword\":\"" + PASSWORD + "\"}");
+        Response login = call("POST /login", "POST", "/login",
+                "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}");
+        token = login.authorization;
+    }
+
+    /**
+     * Takes the number of units from the cart the server answered with, so removing an
+     * item that is not in the cart, or a failed submission restoring the cart, is
+     * reflected.
+     */
+    private void readCart(Response response) {
+        if (!ok(response)) {
+            return;
+        }
+        try {
+            cartUnits = JSON.readTree(response.body).path("items").size();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unreadable cart: " + response.body, e);
+        }
+    }
+
+    private String cartRequest(List<Long> itemIds, int quantity) {
+        long itemId = itemIds.get(random.nextInt(itemIds.size()));
+        return "{\"username\":\"" + username + "\",\"itemId\":" + itemId + ",\"quantity\":" + quantity + "}";
+    }
+
+    private Response call(String endpoint, String method, String path, String body) {
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = send(method, path, body);
+        } catch (IOException e) {
+            response = new Response(-1, null, null);
+        }
+        if (measuring) {
+            test.stats(endpoint).record(System.nanoTime() - start, !ok(response));
+        }
+        return response;
+    }
+
+    private Response send(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(test.getBaseUrl() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (token != null) {
+            connection.setRequestProperty("Authorization", token);
+        }
+        if (body != null) {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setFixedLengthStreamingMode(bytes.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(bytes);
+            }
+        }
+        int status = connection.getResponseCode();
+        // Always drain the body so the keep-alive connection can be reused
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        String responseBody = in == null ? "" : read(in);
+        return new Response(status, responseBody, connection.getHeaderField("Authorization"));
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static boolean ok(Response response) {
+        return response.status >= 200 && response.status < 400;
+    }
+
+    private static final class Response {
+        private final int status;
+        private final String body;
+        private final String authorization;
+
+        private Response(int status, String body, String authorization) {
+            this.status = status;
+            this.body = body;
+            this.authorization = authorization;
+        }
+    }
+}
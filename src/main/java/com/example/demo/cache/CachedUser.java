@@ -0,0 +1,55 @@
+package com.example.demo.cache;
+
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserCredentials;
+
+/**
+ * The parts of a {@link User} the hot paths need, detached from the persistence context.
+ */
+public final class CachedUser implements UserCredentials {
+	private final long id;
+	private final String username;
+	private final String password;
+	private final Long cartId;
+
+	public CachedUser(long id, String username, String password, Long cartId) {
+		this.id = id;
+		this.username = username;
+		this.password = password;
+		this.cartId = cartId;
+	}
+
+	public static CachedUser of(User user) {
+		return new CachedUser(user.getId(), user.getUsername(), user.getPassword(),
+				user.getCart() == null ? null : user.getCart().getId());
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	@Override
+	public String getUsername() {
+		return username;
+	}
+
+	@Override
+	public String getPassword() {
+		return password;
+	}
+
+	public Long getCartId() {
+		return cartId;
+	}
+
+	/**
+	 * @return a transient {@link User} carrying the cached id, username and password hash
+	 */
+	public User toUser() {
+		User user = new User();
+		user.setId(id);
+		user.setUsername(username);
+		user.setPassword(password);
+		return user;
+	}
+}
@@ -0,0 +1,135 @@
+package com.example.demo.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.ItemChangedEvent;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Immutable, pre-serialized snapshot of the item table. The snapshot is built at
+ * startup and rebuilt on the first read after an item change has been committed,
+ * so catalog reads need neither the database nor per-request JSON serialization.
+ */
+@Component
+public class ItemCatalog {
+
+	private final ItemRepository itemRepository;
+	private final ObjectMapper objectMapper;
+	private final long epoch = System.currentTimeMillis();
+	private final AtomicLong versions = new AtomicLong();
+
+	private volatile Snapshot snapshot;
+	private volatile boolean stale = true;
+
+	@Autowired
+	public ItemCatalog(ItemRepository itemRepository, ObjectMapper objectMapper) {
+		this.itemRepository = itemRepository;
+		this.objectMapper = objectMapper;
+	}
+
+	@PostConstruct
+	public void load() {
+		snapshot();
+	}
+
+	public Snapshot snapshot() {
+		if (stale) {
+			reload();
+		}
+		return snapshot;
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onItemChanged(ItemChangedEvent event) {
+		stale = true;
+	}
+
+	private synchronized void reload() {
+		if (!stale) {
+			return;
+		}
+		// Cleared before reading, so a change committed while loading triggers another reload
+		stale = false;
+		List<Item> items = itemRepository.findAll();
+		Map<Long, byte[]> itemJson = new HashMap<>(items.size() * 2);
+		for (Item item : items) {
+			itemJson.put(item.getId(), toJson(item));
+		}
+		String etag = "\"" + epoch + "-" + versions.incrementAndGet() + "\"";
+		snapshot = new Snapshot(etag, Collections.unmodifiableList(items), toJson(items), itemJson);
+	}
+
+	private byte[] toJson(Object value) {
+		try {
+			return objectMapper.writeValueAsBytes(value);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Cannot serialize item catalog", e);
+		}
+	}
+
+	public static final class Snapshot {
+		private final String etag;
+		private final List<Item> items;
+		private final byte[] itemsJson;
+		private final Map<Long, byte[]> itemJson;
+
+		private Snapshot(String etag, List<Item> items, byte[] itemsJson, Map<Long, byte[]> itemJson) {
+			this.etag = etag;
+			this.items = items;
+			this.itemsJson = itemsJson;
+			this.itemJson = itemJson;
+		}
+
+		/**
+		 * @return the quoted entity tag identifying this snapshot
+		 */
+		public String getETag() {
+			return etag;
+		}
+
+		public List<Item> getItems() {
+			return items;
+		}
+
+		/**
+		 * @return the JSON array of all items; callers must not modify it
+		 */
+		public byte[] getItemsJson() {
+			return itemsJson;
+		}
+
+		/**
+		 * @return the JSON of one item, or {@code null} if there is no such item;
+		 *         callers must not modify it
+		 */
+		public byte[] getItemJson(Long id) {
+			return itemJson.get(id);
+		}
+
+		public boolean matches(String ifNoneMatch) {
+			if (ifNoneMatch == null) {
+				return false;
+			}
+			for (String tag : ifNoneMatch.split(",")) {
+				String trimmed = tag.trim();
+				if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
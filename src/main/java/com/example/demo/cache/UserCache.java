@@ -0,0 +1,175 @@
+package com.example.demo.cache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.metrics.Phase;
+import com.example.demo.metrics.RequestTimings;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserCredentials;
+import com.example.demo.model.persistence.repositories.UserRepository;
+
+/**
+ * Read-through cache in front of {@link UserRepository#findByUsername(String)}.
+ * Entries expire after a fixed time to live; once the cache is full the oldest
+ * entries are evicted first. Unknown usernames are not cached.
+ */
+@Component
+public class UserCache {
+
+	private final UserRepository userRepository;
+	private final int maxSize;
+	private final long ttlMillis;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queued = new AtomicInteger();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	@Autowired
+	public UserCache(UserRepository userRepository,
+					 @Value("${cache.user.max-size:10000}") int maxSize,
+					 @Value("${cache.user.ttl:PT5M}") Duration ttl) {
+		this.userRepository = userRepository;
+		this.maxSize = maxSize;
+		this.ttlMillis = ttl.toMillis();
+	}
+
+	public UserCache(UserRepository userRepository) {
+		this(userRepository, 10_000, Duration.ofMinutes(5));
+	}
+
+	/**
+	 * @return the cached user, loading it from the repository on a miss, or
+	 *         {@code null} if no user has that username
+	 */
+	public CachedUser get(String username) {
+		long start = System.nanoTime();
+		try {
+			return lookup(username);
+		} finally {
+			RequestTimings.record(Phase.USER_LOOKUP, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * @return the username and password hash for a login check, served from the cache
+	 *         when present; a miss reads just those two columns and is not cached, or
+	 *         {@code null} if no user has that username
+	 */
+	public UserCredentials getCredentials(String username) {
+		long start = System.nanoTime();
+		try {
+			if (username == null) {
+				return null;
+			}
+			CachedUser cached = find(username, System.currentTimeMillis());
+			return cached != null ? cached : userRepository.findCredentialsByUsername(username);
+		} finally {
+			RequestTimings.record(Phase.USER_LOOKUP, System.nanoTime() - start);
+		}
+	}
+
+	private CachedUser lookup(String username) {
+		if (username == null) {
+			return null;
+		}
+		long now = System.currentTimeMillis();
+		CachedUser cached = find(username, now);
+		if (cached != null) {
+			return cached;
+		}
+
+		User user = userRepository.findByUsername(username);
+		if (user == null) {
+			return null;
+		}
+		cached = CachedUser.of(user);
+		put(new Entry(username, cached, now + ttlMillis));
+		return cached;
+	}
+
+	private CachedUser find(String username, long now) {
+		Entry entry = entries.get(username);
+		if (entry != null) {
+			if (entry.expiresAt > now) {
+				hits.increment();
+				return entry.user;
+			}
+			if (entries.remove(username, entry)) {
+				evictions.increment();
+			}
+		}
+		misses.increment();
+		return null;
+	}
+
+	public void invalidate(String username) {
+		if (username != null) {
+			entries.remove(username);
+		}
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public double getHitRate() {
+		long hitCount = hits.sum();
+		long total = hitCount + misses.sum();
+		return total == 0 ? 0.0 : (double) hitCount / total;
+	}
+
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	private void put(Entry entry) {
+		entries.put(entry.username, entry);
+		insertionOrder.add(entry);
+		queued.incrementAndGet();
+
+		// The queue also holds entries already replaced or invalidated, so drain it
+		// whenever it grows well past the live entries
+		Entry oldest;
+		while ((entries.size() > maxSize || queued.get() > 2 * maxSize)
+				&& (oldest = insertionOrder.poll()) != null) {
+			queued.decrementAndGet();
+			if (entries.remove(oldest.username, oldest)) {
+				evictions.increment();
+			}
+		}
+	}
+
+	private static final class Entry {
+		private final String username;
+		private final CachedUser user;
+		private final long expiresAt;
+
+		private Entry(String username, CachedUser user, long expiresAt) {
+			this.username = username;
+			this.user = user;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
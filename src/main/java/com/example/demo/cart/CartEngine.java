@@ -0,0 +1,44 @@
+package com.example.demo.cart;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.requests.CartItemDelta;
+
+/**
+ * Reads and changes carts. Selected with {@code cart.engine}: {@code jpa} (the default)
+ * writes every change to the database through {@link CartUpdater}, {@code memory} keeps
+ * active carts in an {@link InMemoryCartStore} and writes them back in the background.
+ */
+public interface CartEngine {
+
+	/**
+	 * @return the cart with its lines, items and user
+	 */
+	Optional<Cart> find(long cartId);
+
+	/**
+	 * Applies the deltas one after the other. Removing more units than a line holds
+	 * empties the line, so the order matters.
+	 *
+	 * @param items  the items named by the deltas, by id
+	 * @param deltas units to add (positive) or remove (negative), in order
+	 * @return the updated cart, or {@code null} if there is no cart with that id
+	 */
+	Cart apply(long cartId, Map<Long, Item> items, List<CartItemDelta> deltas);
+
+	/**
+	 * Applies the deltas as {@link #apply} does, except that a delta removing more units
+	 * than its line holds fails the whole change instead of emptying the line. Lets a
+	 * caller take out exactly the units it saw in the cart.
+	 *
+	 * @throws OptimisticLockingFailureException if a line holds fewer units than a delta
+	 *                                           removes; nothing is changed then
+	 */
+	Cart applyExactly(long cartId, Map<Long, Item> items, List<CartItemDelta> deltas);
+}
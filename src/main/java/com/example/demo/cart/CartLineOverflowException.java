@@ -0,0 +1,12 @@
+package com.example.demo.cart;
+
+/**
+ * Thrown when a change would put more than {@link Integer#MAX_VALUE} units of one item
+ * in a cart. Nothing of that change is applied.
+ */
+public class CartLineOverflowException extends RuntimeException {
+
+	public CartLineOverflowException(long itemId) {
+		super("Cart line for item #" + itemId + " would exceed " + Integer.MAX_VALUE + " units");
+	}
+}
@@ -0,0 +1,286 @@
+package com.example.demo.cart;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.requests.CartItemDelta;
+
+/**
+ * Applies cart changes as signed quantities per item. The cart is versioned, so when
+ * another writer changed it in the meantime the commit fails instead of overwriting
+ * that change; the deltas are then applied again to the cart as it is now and
+ * committed again.
+ *
+ * <p>Updates arriving while another update of a cart in the same stripe is being
+ * written queue up, and the next thread in line applies them per cart in the order
+ * they arrived, in one transaction per cart. A burst on one cart then costs a few
+ * transactions rather than one conflicting transaction per request. Removing more
+ * units than a line holds empties the line, so deltas are never summed: each one is
+ * applied as its caller sent it. Each caller gets its own outcome: a copy of the cart
+ * as its deltas left it, detached from the writing thread's entity manager, or the
+ * failure its own deltas caused.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.engine", havingValue = "jpa", matchIfMissing = true)
+public class CartUpdater implements CartEngine {
+
+	private static final int STRIPES = 64;
+
+	private final CartRepository cartRepository;
+	private final EntityManager entityManager;
+	private final TransactionTemplate transactionTemplate;
+	private final int maxAttempts;
+	private final Combiner[] combiners;
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder conflicts = new LongAdder();
+
+	@Autowired
+	public CartUpdater(CartRepository cartRepository, EntityManager entityManager,
+					   PlatformTransactionManager transactionManager,
+					   @Value("${cart.update.max-attempts:10}") int maxAttempts) {
+		this.cartRepository = cartRepository;
+		this.entityManager = entityManager;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.maxAttempts = maxAttempts;
+		this.combiners = new Combiner[STRIPES];
+		for (int i = 0; i < STRIPES; i++) {
+			combiners[i] = new Combiner();
+		}
+	}
+
+	/**
+	 * Applies the deltas to the cart in order.
+	 *
+	 * @param exactly whether removing more units than a line holds fails the change
+	 *                rather than emptying the line
+	 * @throws CartLineOverflowException         if a line would exceed
+	 *                                           {@link Integer#MAX_VALUE} units
+	 * @throws OptimisticLockingFailureException if {@code exactly} and a line holds too
+	 *                                           few units
+	 */
+	static void applyTo(Cart cart, Map<Long, Item> items, List<CartItemDelta> deltas, boolean exactly) {
+		// Nothing changes until every delta is known to fit
+		Map<Long, Integer> quantities = new HashMap<>();
+		for (CartItemDelta delta : deltas) {
+			int quantity = quantities.computeIfAbsent(delta.getItemId(), cart::getQuantity);
+			long after = (long) quantity + delta.getQuantity();
+			if (after > Integer.MAX_VALUE) {
+				throw new CartLineOverflowException(delta.getItemId());
+			}
+			if (after < 0 && exactly) {
+				throw new OptimisticLockingFailureException("Cart #" + cart.getId() + " holds " + quantity
+						+ " units of item #" + delta.getItemId() + ", fewer than the " + -delta.getQuantity() + " to remove");
+			}
+			quantities.put(delta.getItemId(), (int) Math.max(0L, after));
+		}
+		for (CartItemDelta delta : deltas) {
+			if (delta.getQuantity() > 0) {
+				cart.addItem(items.get(delta.getItemId()), delta.getQuantity());
+			} else if (delta.getQuantity() < 0) {
+				cart.removeItem(items.get(delta.getItemId()), -delta.getQuantity());
+			}
+		}
+	}
+
+	@Override
+	public Optional<Cart> find(long cartId) {
+		return cartRepository.findWithLinesById(cartId);
+	}
+
+	/**
+	 * @throws OptimisticLockingFailureException if the cart still changed underneath on
+	 *                                           the last attempt
+	 */
+	@Override
+	public Cart apply(long cartId, Map<Long, Item> items, List<CartItemDelta> deltas) {
+		return combine(new Update(cartId, items, deltas, false));
+	}
+
+	/**
+	 * @throws OptimisticLockingFailureException if a line holds fewer units than a delta
+	 *                                           removes, or the cart still changed
+	 *                                           underneath on the last attempt
+	 */
+	@Override
+	public Cart applyExactly(long cartId, Map<Long, Item> items, List<CartItemDelta> deltas) {
+		return combine(new Update(cartId, items, deltas, true));
+	}
+
+	public long getBatchCount() {
+		return batches.sum();
+	}
+
+	public long getConflictCount() {
+		return conflicts.sum();
+	}
+
+	private Cart combine(Update update) {
+		long cartId = update.cartId;
+		Combiner combiner = combiners[Long.hashCode(cartId) & (STRIPES - 1)];
+		combiner.pending.add(update);
+		combiner.lock.lock();
+		try {
+			if (!update.done) {
+				writePending(combiner);
+			}
+		} finally {
+			combiner.lock.unlock();
+		}
+		if (update.failure != null) {
+			throw update.failure;
+		}
+		return update.cart;
+	}
+
+	private void writePending(Combiner combiner) {
+		Map<Long, List<Update>> byCart = new LinkedHashMap<>();
+		Update update;
+		while ((update = combiner.pending.poll()) != null) {
+			byCart.computeIfAbsent(update.cartId, id -> new ArrayList<>()).add(update);
+		}
+		byCart.forEach(this::writeBatch);
+	}
+
+	/**
+	 * Writes the batch in one transaction. When one caller's deltas cannot be applied,
+	 * that caller alone gets the failure and the others are written without it.
+	 */
+	private void writeBatch(long cartId, List<Update> batch) {
+		batches.increment();
+		List<Update> remaining = new ArrayList<>(batch);
+		while (!remaining.isEmpty()) {
+			try {
+				List<Cart> carts = write(cartId, remaining);
+				for (int i = 0; i < remaining.size(); i++) {
+					remaining.get(i).cart = carts == null ? null : carts.get(i);
+				}
+				break;
+			} catch (RejectedUpdate e) {
+				e.update.failure = e.failure;
+				remaining.remove(e.update);
+				// The rolled back cart may still sit in an entity manager kept open for the request
+				entityManager.clear();
+			} catch (RuntimeException e) {
+				for (Update update : remaining) {
+					update.failure = e;
+				}
+				break;
+			}
+		}
+		for (Update written : batch) {
+			written.done = true;
+		}
+	}
+
+	/**
+	 * Applies the updates in order and commits them together.
+	 *
+	 * @return for each update, a detached copy of the cart as that update left it, or
+	 *         {@code null} if there is no cart with that id
+	 * @throws RejectedUpdate if one update's deltas failed; nothing is committed
+	 */
+	private List<Cart> write(long cartId, List<Update> updates) {
+		for (int attempt = 1; ; attempt++) {
+			try {
+				return transactionTemplate.execute(status -> {
+					Cart cart = cartRepository.findWithLinesById(cartId).orElse(null);
+					if (cart == null) {
+						return null;
+					}
+					List<Cart> carts = new ArrayList<>(updates.size());
+					for (Update update : updates) {
+						try {
+							applyTo(cart, update.items, update.deltas, update.exactly);
+						} catch (RuntimeException e) {
+							throw new RejectedUpdate(update, e);
+						}
+						carts.add(cart.copy());
+					}
+					cartRepository.save(cart);
+					return carts;
+				});
+			} catch (OptimisticLockingFailureException e) {
+				conflicts.increment();
+				if (attempt >= maxAttempts) {
+					throw e;
+				}
+				// An entity manager kept open for the request still holds the stale cart
+				entityManager.clear();
+				backOff(attempt);
+			}
+		}
+	}
+
+	/**
+	 * Waits a random time that doubles with each attempt, so the writers that collided
+	 * do not all retry at the same moment.
+	 */
+	private static void backOff(int attempt) {
+		long maxMicros = 50L << Math.min(attempt, 7);
+		LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(ThreadLocalRandom.current().nextLong(maxMicros)));
+	}
+
+	private static final class Combiner {
+		private final Queue<Update> pending = new ConcurrentLinkedQueue<>();
+		private final ReentrantLock lock = new ReentrantLock();
+	}
+
+	/**
+	 * One caller's change. The outcome fields are written and read under the
+	 * combiner's lock.
+	 */
+	private static final class Update {
+		private final long cartId;
+		private final Map<Long, Item> items;
+		private final List<CartItemDelta> deltas;
+		private final boolean exactly;
+		private boolean done;
+		private Cart cart;
+		private RuntimeException failure;
+
+		private Update(long cartId, Map<Long, Item> items, List<CartItemDelta> deltas, boolean exactly) {
+			this.cartId = cartId;
+			this.items = items;
+			this.deltas = deltas;
+			this.exactly = exactly;
+		}
+	}
+
+	/**
+	 * Rolls back a batch when one of its updates fails, naming that update.
+	 */
+	private static final class RejectedUpdate extends RuntimeException {
+		private final transient Update update;
+		private final transient RuntimeException failure;
+
+		private RejectedUpdate(Update update, RuntimeException failure) {
+			super(failure);
+			this.update = update;
+			this.failure = failure;
+		}
+	}
+}
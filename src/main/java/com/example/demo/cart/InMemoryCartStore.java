@@ -0,0 +1,293 @@
+package com.example.demo.cart;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.Money;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.requests.CartItemDelta;
+
+/**
+ * Keeps active carts in memory, guarded by striped locks, and writes them back to the
+ * {@code cart} table from a background thread. A change only touches the in-memory
+ * cart and marks it dirty; however often a cart changed between two flushes, the flush
+ * writes its latest state once. Carts are loaded from the database on first use, so
+ * after a restart the store fills up again as users come back, and carts left alone for
+ * longer than the idle timeout are dropped once they have been written.
+ *
+ * <p>A change is applied to a copy of the cart, which then replaces it. A cart handed
+ * out is therefore never changed again, so reads and flushes share it without copying,
+ * and it must not be changed by the caller either.
+ *
+ * <p>Changes not yet flushed are lost if the process dies without shutting down.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.engine", havingValue = "memory")
+public class InMemoryCartStore implements CartEngine {
+
+	private static final Logger log = LoggerFactory.getLogger(InMemoryCartStore.class);
+
+	private static final int STRIPES = 64;
+
+	private final CartRepository cartRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final long flushIntervalMillis;
+	private final long idleTimeoutMillis;
+	private final ReentrantLock[] locks;
+	private final Map<Long, Entry> carts = new ConcurrentHashMap<>();
+	private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+	private final LongAdder flushes = new LongAdder();
+	private ScheduledExecutorService flusher;
+
+	@Autowired
+	public InMemoryCartStore(CartRepository cartRepository, PlatformTransactionManager transactionManager,
+							 @Value("${cart.memory.flush-interval:PT1S}") Duration flushInterval,
+							 @Value("${cart.memory.idle-timeout:PT10M}") Duration idleTimeout) {
+		this.cartRepository = cartRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.flushIntervalMillis = flushInterval.toMillis();
+		this.idleTimeoutMillis = idleTimeout.toMillis();
+		this.locks = new ReentrantLock[STRIPES];
+		for (int i = 0; i < STRIPES; i++) {
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	@PostConstruct
+	public void start() {
+		flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "cart-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		flusher.scheduleWithFixedDelay(this::flushAndEvict, flushIntervalMillis, flushIntervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the background flushes and writes every cart that is still dirty.
+	 */
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		if (flusher != null) {
+			flusher.shutdown();
+			flusher.awaitTermination(30, TimeUnit.SECONDS);
+		}
+		flush();
+	}
+
+	@Override
+	public Optional<Cart> find(long cartId) {
+		ReentrantLock lock = lock(cartId);
+		lock.lock();
+		try {
+			Entry entry = load(cartId);
+			if (entry == null) {
+				return Optional.empty();
+			}
+			return Optional.of(entry.cart);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Cart apply(long cartId, Map<Long, Item> items, List<CartItemDelta> deltas) {
+		return apply(cartId, items, deltas, false);
+	}
+
+	@Override
+	public Cart applyExactly(long cartId, Map<Long, Item> items, List<CartItemDelta> deltas) {
+		return apply(cartId, items, deltas, true);
+	}
+
+	/**
+	 * Writes the current state of every dirty cart, one transaction per cart. A cart
+	 * whose write fails stays dirty and is tried again on the next flush.
+	 */
+	public synchronized void flush() {
+		for (Long cartId : new ArrayList<>(dirty)) {
+			dirty.remove(cartId);
+			Cart snapshot;
+			ReentrantLock lock = lock(cartId);
+			lock.lock();
+			try {
+				Entry entry = carts.get(cartId);
+				if (entry == null) {
+					continue;
+				}
+				snapshot = entry.cart;
+			} finally {
+				lock.unlock();
+			}
+			try {
+				write(snapshot);
+				flushes.increment();
+			} catch (RuntimeException e) {
+				log.warn("Writing cart #{} failed, retrying on the next flush", cartId, e);
+				dirty.add(cartId);
+			}
+		}
+	}
+
+	/**
+	 * Drops the carts that were written and not used for longer than the idle timeout.
+	 */
+	public synchronized void evictIdle() {
+		long idleSince = System.currentTimeMillis() - idleTimeoutMillis;
+		for (Map.Entry<Long, Entry> cached : carts.entrySet()) {
+			long cartId = cached.getKey();
+			if (cached.getValue().lastAccess > idleSince || dirty.contains(cartId)) {
+				continue;
+			}
+			ReentrantLock lock = lock(cartId);
+			lock.lock();
+			try {
+				Entry entry = carts.get(cartId);
+				if (entry != null && entry.lastAccess <= idleSince && !dirty.contains(cartId)) {
+					carts.remove(cartId);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	public int size() {
+		return carts.size();
+	}
+
+	public long getFlushCount() {
+		return flushes.sum();
+	}
+
+	private void flushAndEvict() {
+		try {
+			flush();
+			evictIdle();
+		} catch (RuntimeException e) {
+			log.error("Cart flush failed", e);
+		}
+	}
+
+	private Cart apply(long cartId, Map<Long, Item> items, List<CartItemDelta> deltas, boolean exactly) {
+		ReentrantLock lock = lock(cartId);
+		lock.lock();
+		try {
+			Entry entry = load(cartId);
+			if (entry == null) {
+				return null;
+			}
+			// The copy shares the kept order lines, so only the changed lines are rebuilt
+			Cart changed = entry.cart.copy();
+			CartUpdater.applyTo(changed, items, deltas, exactly);
+			entry.cart = changed;
+			dirty.add(cartId);
+			return changed;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the cart's entry, reading the cart from the database if it is not in
+	 * memory. Called with the cart's stripe locked.
+	 */
+	private Entry load(long cartId) {
+		Entry entry = carts.get(cartId);
+		if (entry == null) {
+			Optional<Cart> stored = cartRepository.findWithLinesById(cartId);
+			if (!stored.isPresent()) {
+				return null;
+			}
+			// Keep a copy, the loaded cart may belong to the caller's entity manager
+			Cart cart = stored.get().copy();
+			// The cart stays here across requests, so orders can take its lines as they are
+			cart.keepOrderLines();
+			entry = new Entry(cart);
+			carts.put(cartId, entry);
+		}
+		entry.lastAccess = System.currentTimeMillis();
+		return entry;
+	}
+
+	/**
+	 * Brings the stored cart's lines and total in line with the snapshot. Lines take
+	 * the unit price they have in the snapshot, not the item's current price, and the
+	 * total is summed from the lines as stored.
+	 */
+	private void write(Cart snapshot) {
+		transactionTemplate.execute(status -> {
+			Cart stored = cartRepository.findWithLinesById(snapshot.getId()).orElse(null);
+			if (stored == null) {
+				return null;
+			}
+			Map<Long, Item> items = new HashMap<>();
+			Map<Long, Integer> deltas = new HashMap<>();
+			Map<Long, Long> unitPrices = new HashMap<>();
+			for (CartLine line : stored.getLines()) {
+				items.put(line.getItemId(), line.getItem());
+				deltas.put(line.getItemId(), -line.getQuantity());
+			}
+			for (CartLine line : snapshot.getLines()) {
+				items.putIfAbsent(line.getItemId(), line.getItem());
+				deltas.merge(line.getItemId(), line.getQuantity(), Integer::sum);
+				unitPrices.put(line.getItemId(), line.getUnitPriceCents());
+			}
+			deltas.forEach((itemId, quantity) -> {
+				if (quantity > 0) {
+					stored.addItem(items.get(itemId), quantity);
+				} else if (quantity < 0) {
+					stored.removeItem(items.get(itemId), -quantity);
+				}
+			});
+			long total = 0;
+			for (CartLine line : stored.getLines()) {
+				line.setUnitPriceCents(unitPrices.get(line.getItemId()));
+				total = Math.addExact(total, Money.times(line.getUnitPriceCents(), line.getQuantity()));
+			}
+			stored.setTotalCents(total);
+			cartRepository.save(stored);
+			return null;
+		});
+	}
+
+	private ReentrantLock lock(long cartId) {
+		return locks[Long.hashCode(cartId) & (STRIPES - 1)];
+	}
+
+	private static final class Entry {
+		private volatile Cart cart;
+		private volatile long lastAccess;
+
+		private Entry(Cart cart) {
+			this.cart = cart;
+		}
+	}
+}
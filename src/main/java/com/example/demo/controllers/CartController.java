@@ -1,11 +1,18 @@
 package com.example.demo.controllers;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -13,12 +20,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.cache.CachedUser;
+import com.example.demo.cache.UserCache;
+import com.example.demo.cart.CartEngine;
+import com.example.demo.cart.CartLineOverflowException;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
-import com.example.demo.model.persistence.User;
-import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.BulkModifyCartRequest;
+import com.example.demo.model.requests.CartItemDelta;
 import com.example.demo.model.requests.ModifyCartRequest;
 
 @RestController
@@ -28,52 +38,92 @@ public class CartController {
 	private static final Logger log = LoggerFactory.getLogger(UserController.class);
 	
 	@Autowired
-	private UserRepository userRepository;
-	
-	@Autowired
-	private CartRepository cartRepository;
+	private UserCache userCache;
 	
 	@Autowired
 	private ItemRepository itemRepository;
+
+	@Autowired
+	private CartEngine cartEngine;
 	
 	@PostMapping("/addToCart")
 	public ResponseEntity<Cart> addTocart(@RequestBody ModifyCartRequest request) {
-		User user = userRepository.findByUsername(request.getUsername());
-		if(user == null) {
-			log.error("Cannot find {} in addTocart", request.getUsername());
-			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		if(request.getQuantity() <= 0) {
+			log.error("Invalid quantity {} in addTocart", request.getQuantity());
+			return ResponseEntity.badRequest().build();
 		}
-		Optional<Item> item = itemRepository.findById(request.getItemId());
-		if(!item.isPresent()) {
-			log.error("Cannot find item #{} in addTocart", request.getItemId());
-			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.addItem(item.get()));
-		cartRepository.save(cart);
-		log.info("Add item to cart success...");
-		return ResponseEntity.ok(cart);
+		return modifyItem(request, request.getQuantity(), "addTocart", "Add item to cart success...");
 	}
 	
 	@PostMapping("/removeFromCart")
 	public ResponseEntity<Cart> removeFromcart(@RequestBody ModifyCartRequest request) {
-		User user = userRepository.findByUsername(request.getUsername());
-		if(user == null) {
-			log.error("Cannot find {} in removeFromCart", request.getUsername());
+		if(request.getQuantity() <= 0) {
+			log.error("Invalid quantity {} in removeFromCart", request.getQuantity());
+			return ResponseEntity.badRequest().build();
+		}
+		return modifyItem(request, -request.getQuantity(), "removeFromCart", "Remove item from cart success...");
+	}
+
+	@PostMapping("/modifyCart")
+	public ResponseEntity<Cart> modifyCart(@RequestBody BulkModifyCartRequest request) {
+		CachedUser user = userCache.get(request.getUsername());
+		if(user == null || user.getCartId() == null) {
+			log.error("Cannot find {} in modifyCart", request.getUsername());
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+		List<CartItemDelta> deltas = request.getItems() == null ? Collections.emptyList() : request.getItems();
+		Set<Long> itemIds = new HashSet<>();
+		for(CartItemDelta delta : deltas) {
+			// Zero changes nothing, and the smallest int has no positive counterpart to remove
+			if(delta.getQuantity() == 0 || delta.getQuantity() == Integer.MIN_VALUE) {
+				log.error("Invalid quantity {} for item #{} in modifyCart", delta.getQuantity(), delta.getItemId());
+				return ResponseEntity.badRequest().build();
+			}
+			itemIds.add(delta.getItemId());
+		}
+		Map<Long, Item> items = itemRepository.findAllById(itemIds).stream()
+			.collect(Collectors.toMap(Item::getId, Function.identity()));
+		if(items.size() < itemIds.size()) {
+			itemIds.removeAll(items.keySet());
+			log.error("Cannot find items {} in modifyCart", itemIds);
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+		return update(user, items, deltas, "modifyCart", "Modify cart success...");
+	}
+
+	private ResponseEntity<Cart> modifyItem(ModifyCartRequest request, int quantity, String action, String success) {
+		CachedUser user = userCache.get(request.getUsername());
+		if(user == null || user.getCartId() == null) {
+			log.error("Cannot find {} in {}", request.getUsername(), action);
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
 		Optional<Item> item = itemRepository.findById(request.getItemId());
 		if(!item.isPresent()) {
-			log.error("Cannot find item #{} in removeFromCart", request.getItemId());
+			log.error("Cannot find item #{} in {}", request.getItemId(), action);
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.removeItem(item.get()));
-		cartRepository.save(cart);
-		log.info("Remove item from cart success...");
+		return update(user, Collections.singletonMap(request.getItemId(), item.get()),
+				Collections.singletonList(new CartItemDelta(request.getItemId(), quantity)), action, success);
+	}
+
+	private ResponseEntity<Cart> update(CachedUser user, Map<Long, Item> items, List<CartItemDelta> deltas,
+			String action, String success) {
+		Cart cart;
+		try {
+			cart = cartEngine.apply(user.getCartId(), items, deltas);
+		} catch (OptimisticLockingFailureException e) {
+			log.error("Cart of {} kept changing concurrently in {}", user.getUsername(), action);
+			return ResponseEntity.status(HttpStatus.CONFLICT).build();
+		} catch (CartLineOverflowException e) {
+			log.error("Too many units for the cart of {} in {}", user.getUsername(), action);
+			return ResponseEntity.badRequest().build();
+		}
+		if(cart == null) {
+			log.error("Cannot find {} in {}", user.getUsername(), action);
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+		log.info(success);
 		return ResponseEntity.ok(cart);
 	}
-		
+
 }
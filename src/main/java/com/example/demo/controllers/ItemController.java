@@ -1,34 +1,139 @@
 package com.example.demo.controllers;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.cache.ItemCatalog;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.responses.ItemPage;
+import com.example.demo.search.ItemSearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 
 @RestController
 @RequestMapping("/api/item")
 public class ItemController {
 
+	public static final MediaType APPLICATION_NDJSON = MediaType.valueOf("application/x-ndjson");
+
 	@Autowired
 	private ItemRepository itemRepository;
+
+	@Autowired
+	private ItemCatalog itemCatalog;
+
+	@Autowired
+	private ItemSearchIndex itemSearchIndex;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Value("${item.page.default-size:50}")
+	private int defaultPageSize = 50;
+
+	@Value("${item.page.max-size:500}")
+	private int maxPageSize = 500;
 	
 	@GetMapping
-	public ResponseEntity<List<Item>> getItems() {
-		return ResponseEntity.ok(itemRepository.findAll());
+	public ResponseEntity<byte[]> getItems(
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		ItemCatalog.Snapshot snapshot = itemCatalog.snapshot();
+		if (snapshot.matches(ifNoneMatch)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.getETag()).build();
+		}
+		return ResponseEntity.ok()
+				.eTag(snapshot.getETag())
+				.contentType(MediaType.APPLICATION_JSON_UTF8)
+				.body(snapshot.getItemsJson());
 	}
 	
 	@GetMapping("/{id}")
-	public ResponseEntity<Item> getItemById(@PathVariable Long id) {
-		return ResponseEntity.of(itemRepository.findById(id));
+	public ResponseEntity<byte[]> getItemById(@PathVariable Long id,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		ItemCatalog.Snapshot snapshot = itemCatalog.snapshot();
+		byte[] item = snapshot.getItemJson(id);
+		if (item == null) {
+			return ResponseEntity.notFound().build();
+		}
+		if (snapshot.matches(ifNoneMatch)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.getETag()).build();
+		}
+		return ResponseEntity.ok()
+				.eTag(snapshot.getETag())
+				.contentType(MediaType.APPLICATION_JSON_UTF8)
+				.body(item);
 	}
 	
+	@GetMapping("/page")
+	public ResponseEntity<ItemPage> getItemPage(@RequestParam(defaultValue = "0") long after,
+			@RequestParam(required = false) Integer size) {
+		int pageSize = size == null ? defaultPageSize : size;
+		if (pageSize <= 0 || pageSize > maxPageSize) {
+			return ResponseEntity.badRequest().build();
+		}
+		List<Item> items = itemRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, pageSize));
+		Long nextCursor = items.size() < pageSize ? null : items.get(items.size() - 1).getId();
+		return ResponseEntity.ok(new ItemPage(items, nextCursor));
+	}
+
+	/**
+	 * Writes every item as one JSON document per line while it is read from the
+	 * database cursor, detaching each entity once written so memory stays flat.
+	 */
+	@GetMapping(value = "/stream", produces = "application/x-ndjson")
+	@Transactional(readOnly = true)
+	public void streamItems(HttpServletResponse response) throws IOException {
+		response.setContentType(APPLICATION_NDJSON.toString());
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		ObjectWriter writer = objectMapper.writerFor(Item.class).withRootValueSeparator("\n");
+		try (Stream<Item> items = itemRepository.streamAllOrderById();
+			 SequenceWriter out = writer.writeValues(response.getOutputStream())) {
+			Iterator<Item> iterator = items.iterator();
+			while (iterator.hasNext()) {
+				Item item = iterator.next();
+				out.write(item);
+				entityManager.detach(item);
+			}
+		}
+	}
+
+	@GetMapping("/search")
+	public ResponseEntity<List<Item>> searchItems(@RequestParam("q") String query,
+			@RequestParam(required = false) Integer limit) {
+		int maxResults = limit == null ? defaultPageSize : limit;
+		if (maxResults <= 0 || maxResults > maxPageSize) {
+			return ResponseEntity.badRequest().build();
+		}
+		return ResponseEntity.ok(itemSearchIndex.search(query, maxResults));
+	}
+
 	@GetMapping("/name/{name}")
 	public ResponseEntity<List<Item>> getItemsByName(@PathVariable String name) {
 		List<Item> items = itemRepository.findByName(name);
@@ -0,0 +1,42 @@
+package com.example.demo.controllers;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.metrics.RequestMetrics;
+import com.example.demo.security.SecurityConstants;
+
+/**
+ * Request metrics in the Prometheus text format, only answered for scrapes from the
+ * local host.
+ */
+@RestController
+public class MetricsController {
+
+	@Autowired
+	private RequestMetrics requestMetrics;
+
+	@GetMapping(value = SecurityConstants.METRICS_URL, produces = "text/plain; version=0.0.4; charset=utf-8")
+	public ResponseEntity<String> scrape(HttpServletRequest request) {
+		if(!isLocal(request.getRemoteAddr())) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok(requestMetrics.scrape());
+	}
+
+	private static boolean isLocal(String address) {
+		try {
+			// The remote address is an IP literal, so this never does a DNS lookup
+			return InetAddress.getByName(address).isLoopbackAddress();
+		} catch (UnknownHostException e) {
+			return false;
+		}
+	}
+}
@@ -1,58 +1,168 @@
 package com.example.demo.controllers;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.cache.CachedUser;
+import com.example.demo.cache.UserCache;
+import com.example.demo.cart.CartEngine;
 import com.example.demo.model.persistence.Cart;
-import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.OrderLine;
 import com.example.demo.model.persistence.UserOrder;
-import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.OrderRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderHistoryPage;
+import com.example.demo.model.responses.OrderSubmissionStatus;
+import com.example.demo.model.responses.OrderSummary;
+import com.example.demo.orders.OrderSubmissionService;
 
 @RestController
 @RequestMapping("/api/order")
 public class OrderController {
 
+	public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
 	private static final Logger log = LoggerFactory.getLogger(UserController.class);
 	
 	@Autowired
-	private UserRepository userRepository;
+	private UserCache userCache;
 	
 	@Autowired
 	private OrderRepository orderRepository;
-	
+
+	@Autowired
+	private OrderSubmissionService orderSubmissionService;
+
+	@Autowired
+	private CartEngine cartEngine;
+
+	@Value("${order.page.default-size:20}")
+	private int defaultPageSize = 20;
+
+	@Value("${order.page.max-size:200}")
+	private int maxPageSize = 200;
 	
 	@PostMapping("/submit/{username}")
 	public ResponseEntity<UserOrder> submit(@PathVariable String username) {
-		User user = userRepository.findByUsername(username);
-		if(user == null) {
+		CachedUser user = userCache.get(username);
+		Optional<Cart> cart = user == null || user.getCartId() == null
+				? Optional.empty() : cartEngine.find(user.getCartId());
+		if(!cart.isPresent()) {
 			log.error("Order requests fail for {}", username);
 			return ResponseEntity.notFound().build();
 		}
-		UserOrder order = UserOrder.createFromCart(user.getCart());
+		UserOrder order = UserOrder.createFromCart(cart.get());
 		orderRepository.save(order);
 		log.info("Order requests success...");
 		return ResponseEntity.ok(order);
 	}
 	
+	/**
+	 * Takes the ordered units out of the cart and queues them as an order, answering 202
+	 * with the submission's id before the order is written; the order id is in the
+	 * submission's status once it is. Repeating the call with the same
+	 * {@code Idempotency-Key} returns the original submission instead of creating
+	 * another order.
+	 */
+	@PostMapping("/submit/{username}/async")
+	public ResponseEntity<OrderSubmissionStatus> submitAsync(@PathVariable String username,
+			@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+		CachedUser user = userCache.get(username);
+		if(user == null) {
+			log.error("Order requests fail for {}", username);
+			return ResponseEntity.notFound().build();
+		}
+		if(idempotencyKey != null) {
+			OrderSubmissionStatus previous = orderSubmissionService.findByIdempotencyKey(user.getId(), idempotencyKey);
+			if(previous != null) {
+				return ResponseEntity.accepted().body(previous);
+			}
+		}
+		Optional<Cart> cart = user.getCartId() == null
+				? Optional.empty() : cartEngine.find(user.getCartId());
+		if(!cart.isPresent()) {
+			log.error("Order requests fail for {}", username);
+			return ResponseEntity.notFound().build();
+		}
+		if(cart.get().getLines().isEmpty()) {
+			log.error("Order requests fail for {}, cart is empty", username);
+			return ResponseEntity.badRequest().build();
+		}
+		OrderSubmissionStatus status;
+		try {
+			status = orderSubmissionService.submit(user.getId(), cart.get(), idempotencyKey);
+		} catch (OptimisticLockingFailureException e) {
+			log.error("Cart of {} kept changing concurrently in submitAsync", username);
+			return ResponseEntity.status(HttpStatus.CONFLICT).build();
+		}
+		if(status == null) {
+			log.error("Order requests rejected for {}, submission queue is full", username);
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+		}
+		log.info("Order requests accepted...");
+		return ResponseEntity.accepted().body(status);
+	}
+
+	@GetMapping("/submission/{username}/{submissionId}")
+	public ResponseEntity<OrderSubmissionStatus> getSubmissionStatus(@PathVariable String username,
+			@PathVariable String submissionId) {
+		CachedUser user = userCache.get(username);
+		OrderSubmissionStatus status = user == null ? null : orderSubmissionService.getStatus(user.getId(), submissionId);
+		return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+	}
+	
 	@GetMapping("/history/{username}")
 	public ResponseEntity<List<UserOrder>> getOrdersForUser(@PathVariable String username) {
-		User user = userRepository.findByUsername(username);
+		CachedUser user = userCache.get(username);
 		if(user == null) {
 			log.error("Fail getting user order history for {}", username);
 			return ResponseEntity.notFound().build();
 		}
 		log.info("Order History requests success...");
-		return ResponseEntity.ok(orderRepository.findByUser(user));
+		return ResponseEntity.ok(orderRepository.findByUserId(user.getId()));
+	}
+
+	@GetMapping("/history/{username}/page")
+	public ResponseEntity<OrderHistoryPage> getOrderHistoryPage(@PathVariable String username,
+			@RequestParam(required = false) Long before,
+			@RequestParam(required = false) Integer size) {
+		CachedUser user = userCache.get(username);
+		if(user == null) {
+			log.error("Fail getting user order history for {}", username);
+			return ResponseEntity.notFound().build();
+		}
+		int pageSize = size == null ? defaultPageSize : size;
+		if(pageSize <= 0 || pageSize > maxPageSize) {
+			return ResponseEntity.badRequest().build();
+		}
+		List<OrderSummary> orders = orderRepository.findSummariesByUserId(user.getId(),
+				before == null ? Long.MAX_VALUE : before, PageRequest.of(0, pageSize));
+		Long nextCursor = orders.size() < pageSize ? null : orders.get(orders.size() - 1).getId();
+		return ResponseEntity.ok(new OrderHistoryPage(orders, nextCursor));
+	}
+
+	@GetMapping("/history/{username}/{orderId}/lines")
+	public ResponseEntity<List<OrderLine>> getOrderLines(@PathVariable String username, @PathVariable long orderId) {
+		CachedUser user = userCache.get(username);
+		if(user == null || !orderRepository.existsByIdAndUserId(orderId, user.getId())) {
+			log.error("Fail getting order #{} for {}", orderId, username);
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok(orderRepository.findLinesByOrderId(orderId));
 	}
 }
@@ -0,0 +1,34 @@
+package com.example.demo.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.security.SecurityConstants;
+import com.example.demo.security.TokenService;
+
+/**
+ * Trades a refresh token for a new access token and refresh token, so a long session
+ * does not need the password, and its BCrypt check, again.
+ */
+@RestController
+public class TokenController {
+
+	@Autowired
+	private TokenService tokenService;
+
+	@PostMapping(SecurityConstants.REFRESH_URL)
+	public ResponseEntity<Void> refresh(@RequestHeader(SecurityConstants.REFRESH_HEADER) String refreshToken) {
+		String username = tokenService.redeemRefreshToken(refreshToken);
+		if (username == null) {
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+		}
+		return ResponseEntity.ok()
+				.header(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + tokenService.createAccessToken(username))
+				.header(SecurityConstants.REFRESH_HEADER, tokenService.createRefreshToken(username))
+				.build();
+	}
+}
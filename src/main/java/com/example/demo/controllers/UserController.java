@@ -5,9 +5,10 @@ import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -15,11 +16,14 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.cache.CachedUser;
+import com.example.demo.cache.UserCache;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.security.PasswordHashingRejectedException;
 
 @RestController
 @RequestMapping("/api/user")
@@ -34,7 +38,10 @@ public class UserController {
 	private CartRepository cartRepository;
 
 	@Autowired
-	private BCryptPasswordEncoder bCryptPasswordEncoder;
+	private UserCache userCache;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
 
 	@GetMapping("/id/{id}")
 	public ResponseEntity<User> findById(@PathVariable Long id) {
@@ -43,27 +50,35 @@ public class UserController {
 	
 	@GetMapping("/{username}")
 	public ResponseEntity<User> findByUserName(@PathVariable String username) {
-		User user = userRepository.findByUsername(username);
-		return user == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(user);
+		CachedUser user = userCache.get(username);
+		return user == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(user.toUser());
 	}
 	
 	@PostMapping("/create")
 	public ResponseEntity<User> createUser(@RequestBody CreateUserRequest createUserRequest) {
-		User user = new User();
-		user.setUsername(createUserRequest.getUsername());
-		Cart cart = new Cart();
-		cartRepository.save(cart);
-		user.setCart(cart);
-
 		if (createUserRequest.getPassword().length() < 7 ||
 				!createUserRequest.getPassword().equals(createUserRequest.getConfirmPassword())) {
 			log.error("Error with user password. Cannot create user {}", createUserRequest.getUsername());
 
 			return ResponseEntity.badRequest().build();
 		}
-		user.setPassword(bCryptPasswordEncoder.encode(createUserRequest.getPassword()));
+		String encodedPassword;
+		try {
+			encodedPassword = passwordEncoder.encode(createUserRequest.getPassword());
+		} catch (PasswordHashingRejectedException e) {
+			log.warn("Password hashing is saturated. Cannot create user {}", createUserRequest.getUsername());
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+		}
+
+		User user = new User();
+		user.setUsername(createUserRequest.getUsername());
+		user.setPassword(encodedPassword);
+		Cart cart = new Cart();
+		cartRepository.save(cart);
+		user.setCart(cart);
 
 		userRepository.save(user);
+		userCache.invalidate(user.getUsername());
 		log.info("CreateUser request successes...");
 		return ResponseEntity.ok(user);
 	}
@@ -0,0 +1,73 @@
+package com.example.demo.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, phase, status and statement figures for one endpoint.
+ */
+public class EndpointMetrics {
+
+	private final String name;
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LatencyHistogram[] phases = new LatencyHistogram[Phase.VALUES.length];
+	private final LongAdder[] statusClasses = new LongAdder[6];
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder statements = new LongAdder();
+
+	EndpointMetrics(String name) {
+		this.name = name;
+		for (int i = 0; i < phases.length; i++) {
+			phases[i] = new LatencyHistogram();
+		}
+		for (int i = 1; i < statusClasses.length; i++) {
+			statusClasses[i] = new LongAdder();
+		}
+	}
+
+	void record(int status, boolean failed, long nanos, RequestTimings timings) {
+		latency.record(nanos);
+		int statusClass = failed ? 5 : status / 100;
+		if (statusClass >= 1 && statusClass <= 5) {
+			statusClasses[statusClass].increment();
+		}
+		if (statusClass == 5) {
+			errors.increment();
+		}
+		statements.add(timings.getStatements());
+		for (Phase phase : Phase.VALUES) {
+			if (timings.isPhaseSeen(phase)) {
+				phases[phase.ordinal()].record(timings.getPhaseNanos(phase));
+			}
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	public LatencyHistogram getPhase(Phase phase) {
+		return phases[phase.ordinal()];
+	}
+
+	/**
+	 * @param statusClass 1 to 5, for 1xx to 5xx responses
+	 */
+	public long getRequestCount(int statusClass) {
+		return statusClasses[statusClass].sum();
+	}
+
+	/**
+	 * @return requests that answered 5xx or ended with an exception
+	 */
+	public long getErrorCount() {
+		return errors.sum();
+	}
+
+	public long getStatementCount() {
+		return statements.sum();
+	}
+}
@@ -0,0 +1,25 @@
+package com.example.demo.metrics;
+
+/**
+ * Parts of a request timed separately from the request as a whole. Phases can nest,
+ * e.g. a user lookup that misses the cache also spends time in persistence.
+ */
+public enum Phase {
+	JWT_VERIFY("jwt_verify"),
+	USER_LOOKUP("user_lookup"),
+	ITEM_LOOKUP("item_lookup"),
+	PERSISTENCE("persistence"),
+	SERIALIZATION("serialization");
+
+	static final Phase[] VALUES = values();
+
+	private final String label;
+
+	Phase(String label) {
+		this.label = label;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+}
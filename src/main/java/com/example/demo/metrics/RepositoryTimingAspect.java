@@ -0,0 +1,36 @@
+package com.example.demo.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times calls on the Spring Data repositories: item repository calls count as item
+ * lookups, all other repository calls as persistence. Work Hibernate defers to the
+ * transaction commit (flushing dirty entities) is not included.
+ */
+@Aspect
+@Component
+public class RepositoryTimingAspect {
+
+	@Around("execution(* *(..)) && target(com.example.demo.model.persistence.repositories.ItemRepository)")
+	public Object timeItemLookup(ProceedingJoinPoint call) throws Throwable {
+		return time(call, Phase.ITEM_LOOKUP);
+	}
+
+	@Around("execution(* *(..)) && target(org.springframework.data.repository.Repository)"
+			+ " && !target(com.example.demo.model.persistence.repositories.ItemRepository)")
+	public Object timePersistence(ProceedingJoinPoint call) throws Throwable {
+		return time(call, Phase.PERSISTENCE);
+	}
+
+	private static Object time(ProceedingJoinPoint call, Phase phase) throws Throwable {
+		long start = System.nanoTime();
+		try {
+			return call.proceed();
+		} finally {
+			RequestTimings.record(phase, System.nanoTime() - start);
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package com.example.demo.metrics;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-endpoint request metrics, rendered in the Prometheus text exposition format.
+ * Latencies are summaries over the whole process lifetime.
+ */
+@Component
+public class RequestMetrics {
+
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+	private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+	private final ConcurrentMap<Object, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+	/**
+	 * @param key identifies the endpoint, e.g. its handler method
+	 * @return the endpoint's metrics, or {@code null} if it has not been registered yet
+	 */
+	public EndpointMetrics find(Object key) {
+		return endpoints.get(key);
+	}
+
+	/**
+	 * @return the metrics registered for the key, creating them with the given name
+	 *         if there are none yet
+	 */
+	public EndpointMetrics register(Object key, String name) {
+		EndpointMetrics created = new EndpointMetrics(name);
+		EndpointMetrics existing = endpoints.putIfAbsent(key, created);
+		return existing == null ? created : existing;
+	}
+
+	public Collection<EndpointMetrics> getEndpoints() {
+		return endpoints.values();
+	}
+
+	public String scrape() {
+		StringBuilder out = new StringBuilder(8192);
+
+		header(out, "http_request_duration_seconds", "summary", "Request latency by endpoint.");
+		for (EndpointMetrics endpoint : endpoints.values()) {
+			summary(out, "http_request_duration_seconds", endpoint.getName(), null, endpoint.getLatency());
+		}
+
+		header(out, "http_request_phase_duration_seconds", "summary",
+				"Time spent per request in each phase, for requests that reached the phase.");
+		for (EndpointMetrics endpoint : endpoints.values()) {
+			for (Phase phase : Phase.VALUES) {
+				LatencyHistogram histogram = endpoint.getPhase(phase);
+				if (histogram.getCount() > 0) {
+					summary(out, "http_request_phase_duration_seconds", endpoint.getName(), phase, histogram);
+				}
+			}
+		}
+
+		header(out, "http_request_duration_max_seconds", "gauge", "Slowest request by endpoint.");
+		for (EndpointMetrics endpoint : endpoints.values()) {
+			sample(out, "http_request_duration_max_seconds", endpoint.getName(), null,
+					endpoint.getLatency().getMax() / NANOS_PER_SECOND);
+		}
+
+		header(out, "http_requests_total", "counter", "Requests by endpoint and status class.");
+		for (EndpointMetrics endpoint : endpoints.values()) {
+			for (int statusClass = 1; statusClass <= 5; statusClass++) {
+				long count = endpoint.getRequestCount(statusClass);
+				if (count > 0) {
+					series(out, "http_requests_total", endpoint.getName(), null)
+							.append(",status=\"").append(statusClass).append("xx\"} ").append(count).append('\n');
+				}
+			}
+		}
+
+		header(out, "http_request_errors_total", "counter", "Requests that failed with a 5xx or an exception.");
+		for (EndpointMetrics endpoint : endpoints.values()) {
+			sample(out, "http_request_errors_total", endpoint.getName(), endpoint.getErrorCount());
+		}
+
+		header(out, "http_request_db_statements_total", "counter", "SQL statements prepared while serving requests.");
+		for (EndpointMetrics endpoint : endpoints.values()) {
+			sample(out, "http_request_db_statements_total", endpoint.getName(), endpoint.getStatementCount());
+		}
+
+		header(out, "db_statements_total", "counter", "SQL statements prepared, inside requests or not.");
+		out.append("db_statements_total ").append(StatementCountingInspector.getStatementCount()).append('\n');
+		return out.toString();
+	}
+
+	private static void summary(StringBuilder out, String name, String endpoint, Phase phase, LatencyHistogram histogram) {
+		for (double quantile : QUANTILES) {
+			series(out, name, endpoint, phase).append(",quantile=\"").append(quantile).append("\"} ")
+					.append(histogram.valueAtPercentile(quantile * 100) / NANOS_PER_SECOND).append('\n');
+		}
+		sample(out, name + "_sum", endpoint, phase, histogram.getSum() / NANOS_PER_SECOND);
+		series(out, name + "_count", endpoint, phase).append("} ").append(histogram.getCount()).append('\n');
+	}
+
+	private static void sample(StringBuilder out, String name, String endpoint, Phase phase, double value) {
+		series(out, name, endpoint, phase).append("} ").append(value).append('\n');
+	}
+
+	private static void sample(StringBuilder out, String name, String endpoint, long value) {
+		series(out, name, endpoint, null).append("} ").append(value).append('\n');
+	}
+
+	/**
+	 * Appends the metric name and labels, leaving the label set open.
+	 */
+	private static StringBuilder series(StringBuilder out, String name, String endpoint, Phase phase) {
+		out.append(name).append("{endpoint=\"");
+		escape(out, endpoint);
+		out.append('"');
+		if (phase != null) {
+			out.append(",phase=\"").append(phase.getLabel()).append('"');
+		}
+		return out;
+	}
+
+	private static void header(StringBuilder out, String name, String type, String help) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void escape(StringBuilder out, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' || c == '"') {
+				out.append('\\').append(c);
+			} else if (c == '\n') {
+				out.append("\\n");
+			} else {
+				out.append(c);
+			}
+		}
+	}
+}
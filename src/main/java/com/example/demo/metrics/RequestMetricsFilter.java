@@ -0,0 +1,65 @@
+package com.example.demo.metrics;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Times every request from before the security filters run until the response is
+ * complete, and records it against the handler that served it. Requests no handler
+ * was mapped to (authentication failures, unknown paths) are grouped together, except
+ * for the login request served by the authentication filter.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+	private static final String LOGIN_PATH = "/login";
+	private static final String LOGIN = "POST " + LOGIN_PATH;
+	private static final String UNMAPPED = "unmapped";
+
+	private final RequestMetrics requestMetrics;
+
+	public RequestMetricsFilter(RequestMetrics requestMetrics) {
+		this.requestMetrics = requestMetrics;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		RequestTimings timings = RequestTimings.begin();
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			chain.doFilter(request, response);
+			failed = false;
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			timings.end();
+			Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+			Object key = handler != null ? handler : isLogin(request) ? LOGIN : UNMAPPED;
+			// The endpoint name is only built the first time its handler is seen
+			EndpointMetrics endpoint = requestMetrics.find(key);
+			if (endpoint == null) {
+				endpoint = requestMetrics.register(key, handler != null ? request.getMethod() + " "
+						+ request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) : (String) key);
+			}
+			endpoint.record(response.getStatus(), failed, elapsed, timings);
+		}
+	}
+
+	private static boolean isLogin(HttpServletRequest request) {
+		String uri = request.getRequestURI();
+		int contextLength = request.getContextPath().length();
+		return uri.length() == contextLength + LOGIN_PATH.length() && uri.startsWith(LOGIN_PATH, contextLength);
+	}
+}
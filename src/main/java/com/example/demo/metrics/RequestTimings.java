@@ -0,0 +1,63 @@
+package com.example.demo.metrics;
+
+/**
+ * Per-thread accumulator for the request currently being served. Code anywhere in
+ * the request path reports phase timings and SQL statements here without needing a
+ * reference to {@link RequestMetrics}; {@link RequestMetricsFilter} starts the
+ * accumulator and folds it into the endpoint's metrics when the request ends.
+ * Outside a request, reports are ignored.
+ */
+public final class RequestTimings {
+
+	private static final ThreadLocal<RequestTimings> CURRENT = ThreadLocal.withInitial(RequestTimings::new);
+
+	private final long[] phaseNanos = new long[Phase.VALUES.length];
+	private final boolean[] phaseSeen = new boolean[Phase.VALUES.length];
+	private int statements;
+	private boolean active;
+
+	private RequestTimings() {
+	}
+
+	public static void record(Phase phase, long nanos) {
+		RequestTimings timings = CURRENT.get();
+		if (timings.active) {
+			timings.phaseNanos[phase.ordinal()] += nanos;
+			timings.phaseSeen[phase.ordinal()] = true;
+		}
+	}
+
+	public static void statementPrepared() {
+		RequestTimings timings = CURRENT.get();
+		if (timings.active) {
+			timings.statements++;
+		}
+	}
+
+	static RequestTimings begin() {
+		RequestTimings timings = CURRENT.get();
+		for (int i = 0; i < timings.phaseNanos.length; i++) {
+			timings.phaseNanos[i] = 0;
+			timings.phaseSeen[i] = false;
+		}
+		timings.statements = 0;
+		timings.active = true;
+		return timings;
+	}
+
+	void end() {
+		active = false;
+	}
+
+	boolean isPhaseSeen(Phase phase) {
+		return phaseSeen[phase.ordinal()];
+	}
+
+	long getPhaseNanos(Phase phase) {
+		return phaseNanos[phase.ordinal()];
+	}
+
+	int getStatements() {
+		return statements;
+	}
+}
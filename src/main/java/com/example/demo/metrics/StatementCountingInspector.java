@@ -0,0 +1,25 @@
+package com.example.demo.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts every SQL statement Hibernate prepares, in total and for the current request.
+ * Registered through {@code hibernate.session_factory.statement_inspector}.
+ */
+public class StatementCountingInspector implements StatementInspector {
+
+	private static final LongAdder STATEMENTS = new LongAdder();
+
+	@Override
+	public String inspect(String sql) {
+		STATEMENTS.increment();
+		RequestTimings.statementPrepared();
+		return sql;
+	}
+
+	public static long getStatementCount() {
+		return STATEMENTS.sum();
+	}
+}
@@ -2,20 +2,24 @@ package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
+import javax.persistence.CascadeType;
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.ManyToMany;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.Version;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
@@ -23,30 +27,69 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class Cart {
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_seq")
+	@SequenceGenerator(name = "cart_seq", sequenceName = "cart_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
 	
-	@ManyToMany
+	@OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
 	@JsonProperty
-	@Column
-    private List<Item> items;
+	private List<CartLine> lines;
 	
 	@OneToOne(mappedBy = "cart")
 	@JsonProperty
     private User user;
 	
-	@Column
-	@JsonProperty
-	private BigDecimal total;
+	/** In cents. */
+	@Column(precision = 19, scale = Money.SCALE)
+	@Convert(converter = MoneyConverter.class)
+	private long total;
+
+	/**
+	 * Checked and increased on every update. Adding or removing units always changes
+	 * {@link #total} as well, so a change to the lines moves the version too.
+	 */
+	@Version
+	@JsonIgnore
+	private long version;
+
+	/** Position of each item's line in {@link #lines}, keyed by item id. */
+	@Transient
+	private LongIntHashMap lineIndex;
+
+	/** The list {@link #lineIndex} was built from; Hibernate swaps in its own list on load and flush. */
+	@Transient
+	private List<CartLine> indexedLines;
+
+	/**
+	 * {@link #lines} as order lines, position for position, or {@code null} unless
+	 * {@link #keepOrderLines()} was called. Replaced rather than changed, so a list
+	 * handed out stays as it was.
+	 */
+	@Transient
+	private ChunkedList<OrderLine> orderLines;
+
+	/** Units in {@link #orderLines}. */
+	@Transient
+	private int orderedUnits;
 	
+	@JsonProperty
 	public BigDecimal getTotal() {
-		return total;
+		return Money.toAmount(total);
 	}
 
 	public void setTotal(BigDecimal total) {
-		this.total = total;
+		this.total = Money.toCents(total);
+	}
+
+	@JsonIgnore
+	public long getTotalCents() {
+		return total;
+	}
+
+	public void setTotalCents(long totalCents) {
+		this.total = totalCents;
 	}
 
 	public User getUser() {
@@ -61,37 +104,228 @@ public class Cart {
 		return id;
 	}
 
+	public long getVersion() {
+		return version;
+	}
+
 	public void setId(Long id) {
 		this.id = id;
 	}
 
+	public List<CartLine> getLines() {
+		return lines == null ? Collections.emptyList() : lines;
+	}
+
+	public void setLines(List<CartLine> lines) {
+		this.lines = lines;
+		if (orderLines != null) {
+			orderLines = null;
+			keepOrderLines();
+		}
+	}
+
+	/**
+	 * The lines as they are now, in an immutable list that later changes to the cart do
+	 * not affect. Built on every call unless the cart keeps its order lines.
+	 */
+	@JsonIgnore
+	public List<OrderLine> getOrderLines() {
+		return orderLines != null ? orderLines : Collections.unmodifiableList(buildOrderLines());
+	}
+
+	/**
+	 * @return the number of units in {@link #getOrderLines()}
+	 */
+	@JsonIgnore
+	public int getUnitCount() {
+		if (orderLines != null) {
+			return orderedUnits;
+		}
+		int units = 0;
+		for (CartLine line : getLines()) {
+			units += line.getQuantity();
+		}
+		return units;
+	}
+
+	/**
+	 * Builds the order lines once and from then on replaces them on every change by a
+	 * new version sharing all but the changed part, so {@link #getOrderLines()} hands
+	 * them out without copying. Every change then allocates, so this only pays off for
+	 * a cart that is kept across many requests and ordered from repeatedly.
+	 */
+	public void keepOrderLines() {
+		if (orderLines == null) {
+			orderedUnits = getUnitCount();
+			orderLines = ChunkedList.of(buildOrderLines());
+		}
+	}
+
+	/**
+	 * One entry per unit in the cart, expanded from the cart lines so the
+	 * JSON shape stays the same as when each unit was stored separately.
+	 */
+	@JsonProperty
 	public List<Item> getItems() {
+		List<Item> items = new ArrayList<>();
+		for (CartLine line : getLines()) {
+			for (int i = 0; i < line.getQuantity(); i++) {
+				items.add(line.getItem());
+			}
+		}
 		return items;
 	}
 
 	public void setItems(List<Item> items) {
-		this.items = items;
+		clear();
+		items.forEach(this::addItem);
 	}
 	
 	public void addItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		addItem(item, 1);
+	}
+
+	/**
+	 * @throws ArithmeticException if the line would hold more than
+	 *                             {@link Integer#MAX_VALUE} units; the cart is then left
+	 *                             unchanged
+	 */
+	public void addItem(Item item, int quantity) {
+		if (quantity <= 0) {
+			return;
 		}
-		items.add(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+		if (lines == null) {
+			lines = new ArrayList<>();
 		}
-		total = total.add(item.getPrice());
+		int position = index().get(item.getId());
+		CartLine line = position == LongIntHashMap.NO_VALUE ? new CartLine(this, item) : lines.get(position);
+		int quantityAfter = Math.addExact(line.getQuantity(), quantity);
+		long totalAfter = Math.addExact(total, Money.times(line.getUnitPriceCents(), quantity));
+		if (position == LongIntHashMap.NO_VALUE) {
+			lines.add(line);
+			position = lines.size() - 1;
+			index().put(item.getId(), position);
+		}
+		line.setQuantity(quantityAfter);
+		total = totalAfter;
+		updateOrderLine(position, line);
+		orderedUnits += quantity;
 	}
 	
 	public void removeItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		removeItem(item, 1);
+	}
+
+	public void removeItem(Item item, int quantity) {
+		int position = index().get(item.getId());
+		if (position == LongIntHashMap.NO_VALUE || quantity <= 0) {
+			return;
+		}
+		CartLine line = lines.get(position);
+		int removed = Math.min(quantity, line.getQuantity());
+		line.setQuantity(line.getQuantity() - removed);
+		if (line.getQuantity() == 0) {
+			removeLine(item.getId());
+		} else {
+			updateOrderLine(position, line);
 		}
-		items.remove(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+		total = Math.subtractExact(total, Money.times(line.getUnitPriceCents(), removed));
+		orderedUnits -= removed;
+	}
+
+	public void clear() {
+		if (lines != null) {
+			lines.clear();
+		}
+		lineIndex = null;
+		if (orderLines != null) {
+			orderLines = ChunkedList.of(Collections.emptyList());
+			orderedUnits = 0;
+		}
+		total = 0;
+	}
+
+	public boolean containsItem(long itemId) {
+		return index().containsKey(itemId);
+	}
+
+	public int getQuantity(long itemId) {
+		int position = index().get(itemId);
+		return position == LongIntHashMap.NO_VALUE ? 0 : lines.get(position).getQuantity();
+	}
+
+	/**
+	 * Copies the cart and its lines, sharing the items, the user and any kept order
+	 * lines, so either can change without affecting the other.
+	 */
+	public Cart copy() {
+		Cart copy = new Cart();
+		copy.id = id;
+		copy.user = user;
+		copy.total = total;
+		copy.lines = new ArrayList<>(getLines().size());
+		for (CartLine line : getLines()) {
+			CartLine copied = new CartLine(copy, line.getItem());
+			copied.setQuantity(line.getQuantity());
+			copied.setUnitPriceCents(line.getUnitPriceCents());
+			copy.lines.add(copied);
+		}
+		copy.orderLines = orderLines;
+		copy.orderedUnits = orderedUnits;
+		return copy;
+	}
+
+	private List<OrderLine> buildOrderLines() {
+		List<OrderLine> built = new ArrayList<>(getLines().size());
+		for (CartLine line : getLines()) {
+			built.add(OrderLine.of(line));
+		}
+		return built;
+	}
+
+	/**
+	 * Brings {@link #orderLines}, if kept, up to date with the line at {@code position},
+	 * which was changed or appended.
+	 */
+	private void updateOrderLine(int position, CartLine line) {
+		if (orderLines != null) {
+			OrderLine ordered = OrderLine.of(line);
+			orderLines = position == orderLines.size() ? orderLines.plus(ordered) : orderLines.with(position, ordered);
+		}
+	}
+
+	/**
+	 * Removes the line for {@code itemId} by moving the last line into its slot,
+	 * so neither the list nor the index has to shift or scan.
+	 */
+	private void removeLine(long itemId) {
+		LongIntHashMap index = index();
+		int position = index.get(itemId);
+		int last = lines.size() - 1;
+		if (position != last) {
+			CartLine moved = lines.get(last);
+			lines.set(position, moved);
+			index.put(moved.getItemId(), position);
+		}
+		lines.remove(last);
+		index.remove(itemId);
+		if (orderLines != null) {
+			if (position != last) {
+				orderLines = orderLines.with(position, orderLines.get(last));
+			}
+			orderLines = orderLines.withoutLast();
+		}
+	}
+
+	private LongIntHashMap index() {
+		if (lineIndex == null || indexedLines != lines) {
+			List<CartLine> current = getLines();
+			lineIndex = new LongIntHashMap(current.size());
+			for (int i = 0; i < current.size(); i++) {
+				lineIndex.put(current.get(i).getItemId(), i);
+			}
+			indexedLines = lines;
 		}
-		total = total.subtract(item.getPrice());
+		return lineIndex;
 	}
 }
@@ -0,0 +1,103 @@
+package com.example.demo.model.persistence;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list kept in chunks of {@value #CHUNK} elements. Changing, appending or
+ * dropping the last element returns a new list that shares every chunk but the one
+ * touched, so a change copies one chunk plus the table of chunk references instead of
+ * the whole list.
+ */
+final class ChunkedList<E> extends AbstractList<E> implements RandomAccess {
+
+	private static final int CHUNK = 32;
+	private static final int SHIFT = 5;
+
+	private final Object[][] chunks;
+	private final int size;
+
+	private ChunkedList(Object[][] chunks, int size) {
+		this.chunks = chunks;
+		this.size = size;
+	}
+
+	static <E> ChunkedList<E> of(List<? extends E> elements) {
+		int size = elements.size();
+		Object[][] chunks = new Object[(size + CHUNK - 1) >>> SHIFT][];
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i] = new Object[CHUNK];
+		}
+		for (int i = 0; i < size; i++) {
+			chunks[i >>> SHIFT][i & (CHUNK - 1)] = elements.get(i);
+		}
+		return new ChunkedList<>(chunks, size);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return (E) chunks[index >>> SHIFT][index & (CHUNK - 1)];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return a list with {@code value} at {@code index}
+	 */
+	ChunkedList<E> with(int index, E value) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		Object[][] copy = chunks.clone();
+		Object[] chunk = copy[index >>> SHIFT].clone();
+		chunk[index & (CHUNK - 1)] = value;
+		copy[index >>> SHIFT] = chunk;
+		return new ChunkedList<>(copy, size);
+	}
+
+	/**
+	 * @return a list with {@code value} appended
+	 */
+	ChunkedList<E> plus(E value) {
+		int offset = size & (CHUNK - 1);
+		Object[][] copy;
+		Object[] chunk;
+		if (offset == 0) {
+			copy = Arrays.copyOf(chunks, chunks.length + 1);
+			chunk = new Object[CHUNK];
+		} else {
+			copy = chunks.clone();
+			chunk = copy[copy.length - 1].clone();
+		}
+		chunk[offset] = value;
+		copy[copy.length - 1] = chunk;
+		return new ChunkedList<>(copy, size + 1);
+	}
+
+	/**
+	 * @return the list without its last element
+	 */
+	ChunkedList<E> withoutLast() {
+		if (size == 0) {
+			throw new IndexOutOfBoundsException("Index: -1, Size: 0");
+		}
+		int last = size - 1;
+		if ((last & (CHUNK - 1)) == 0) {
+			return new ChunkedList<>(Arrays.copyOf(chunks, chunks.length - 1), last);
+		}
+		Object[][] copy = chunks.clone();
+		Object[] chunk = copy[copy.length - 1].clone();
+		chunk[last & (CHUNK - 1)] = null;
+		copy[copy.length - 1] = chunk;
+		return new ChunkedList<>(copy, last);
+	}
+}
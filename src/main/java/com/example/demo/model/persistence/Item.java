@@ -4,18 +4,22 @@ import java.math.BigDecimal;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
-@Table(name = "item")
+@Table(name = "item", indexes = @Index(name = "idx_item_name", columnList = "name"))
+@EntityListeners(ItemChangeListener.class)
 public class Item {
 
 	@Id
@@ -34,6 +38,14 @@ public class Item {
 	@Column(nullable = false)
 	@JsonProperty
 	private String description;
+
+	/** {@link #price} in cents, worked out once per price. */
+	@Transient
+	private long priceCents;
+
+	/** The price {@link #priceCents} was worked out from; written last so readers see both. */
+	@Transient
+	private volatile BigDecimal centsOf;
 	
 	@Override
 	public int hashCode() {
@@ -84,6 +96,15 @@ public class Item {
 		this.price = price;
 	}
 
+	@JsonIgnore
+	public long getPriceCents() {
+		if (centsOf != price) {
+			priceCents = Money.toCents(price);
+			centsOf = price;
+		}
+		return priceCents;
+	}
+
 	public String getDescription() {
 		return description;
 	}
@@ -0,0 +1,36 @@
+package com.example.demo.model.persistence;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * JPA listener turning {@link Item} writes into {@link ItemChangedEvent}s, so the
+ * in-memory views of the catalog can follow changes. Hibernate obtains it through
+ * Spring's bean container, which injects the publisher.
+ */
+public class ItemChangeListener {
+
+	@Autowired
+	private ApplicationEventPublisher publisher;
+
+	@PostPersist
+	@PostUpdate
+	public void saved(Item item) {
+		publish(new ItemChangedEvent(item, ItemChangedEvent.Type.SAVED));
+	}
+
+	@PostRemove
+	public void removed(Item item) {
+		publish(new ItemChangedEvent(item, ItemChangedEvent.Type.REMOVED));
+	}
+
+	private void publish(ItemChangedEvent event) {
+		if (publisher != null) {
+			publisher.publishEvent(event);
+		}
+	}
+}
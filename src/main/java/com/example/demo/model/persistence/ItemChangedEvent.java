@@ -0,0 +1,25 @@
+package com.example.demo.model.persistence;
+
+/**
+ * Published after an {@link Item} row is inserted, updated or deleted.
+ */
+public class ItemChangedEvent {
+
+	public enum Type { SAVED, REMOVED }
+
+	private final Item item;
+	private final Type type;
+
+	public ItemChangedEvent(Item item, Type type) {
+		this.item = item;
+		this.type = type;
+	}
+
+	public Item getItem() {
+		return item;
+	}
+
+	public Type getType() {
+		return type;
+	}
+}
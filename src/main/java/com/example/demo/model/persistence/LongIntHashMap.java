@@ -0,0 +1,126 @@
+package com.example.demo.model.persistence;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive {@code long} keys to {@code int} values,
+ * used to index cart lines by item id without boxing. Not thread-safe.
+ */
+class LongIntHashMap {
+
+	static final int NO_VALUE = -1;
+
+	private static final int MIN_CAPACITY = 8;
+
+	private long[] keys;
+	private int[] values;
+	private boolean[] used;
+	private int size;
+
+	LongIntHashMap() {
+		this(MIN_CAPACITY);
+	}
+
+	LongIntHashMap(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean containsKey(long key) {
+		return used[find(key)];
+	}
+
+	/**
+	 * @return the value mapped to {@code key}, or {@link #NO_VALUE} if there is none
+	 */
+	int get(long key) {
+		int slot = find(key);
+		return used[slot] ? values[slot] : NO_VALUE;
+	}
+
+	void put(long key, int value) {
+		int slot = find(key);
+		if (!used[slot]) {
+			if ((size + 1) * 4 > keys.length * 3) {
+				resize(keys.length * 2);
+				slot = find(key);
+			}
+			used[slot] = true;
+			keys[slot] = key;
+			size++;
+		}
+		values[slot] = value;
+	}
+
+	void remove(long key) {
+		int slot = find(key);
+		if (!used[slot]) {
+			return;
+		}
+		used[slot] = false;
+		size--;
+
+		// Shift later entries of the probe chain back so lookups never stop at the hole
+		int mask = keys.length - 1;
+		int hole = slot;
+		for (int next = (slot + 1) & mask; used[next]; next = (next + 1) & mask) {
+			int home = hash(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				used[hole] = true;
+				used[next] = false;
+				hole = next;
+			}
+		}
+	}
+
+	void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	private int find(long key) {
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (used[slot] && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(capacity);
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+	}
+
+	private static int capacityFor(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity * 3 < expectedSize * 4) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
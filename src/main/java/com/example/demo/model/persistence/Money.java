@@ -0,0 +1,39 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money amounts as a {@code long} count of cents. Running totals are kept in cents so
+ * adding and removing units does not allocate; {@link BigDecimal} only appears where
+ * amounts are read from or written to the database and JSON.
+ */
+public final class Money {
+
+	/** Digits after the decimal point of every stored and returned amount. */
+	public static final int SCALE = 2;
+
+	/** Applied when an amount with more digits than {@link #SCALE} is converted to cents. */
+	public static final RoundingMode ROUNDING = RoundingMode.HALF_EVEN;
+
+	private Money() {
+	}
+
+	/**
+	 * @throws ArithmeticException if the amount does not fit in a {@code long} of cents
+	 */
+	public static long toCents(BigDecimal amount) {
+		return amount.setScale(SCALE, ROUNDING).unscaledValue().longValueExact();
+	}
+
+	public static BigDecimal toAmount(long cents) {
+		return BigDecimal.valueOf(cents, SCALE);
+	}
+
+	/**
+	 * @throws ArithmeticException on overflow
+	 */
+	public static long times(long cents, int quantity) {
+		return Math.multiplyExact(cents, (long) quantity);
+	}
+}
@@ -0,0 +1,72 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Embeddable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One ordered item as it was when the order was placed. The item's id, name and price
+ * are copied rather than referenced, so later catalog changes do not alter past orders
+ * and reading an order does not touch the {@code item} table.
+ */
+@Embeddable
+public class OrderLine {
+
+	@Column(name = "item_id", nullable = false)
+	@JsonProperty
+	private long itemId;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private String name;
+
+	/** In cents. */
+	@Column(nullable = false, precision = 19, scale = Money.SCALE)
+	@Convert(converter = MoneyConverter.class)
+	private long unitPrice;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private int quantity;
+
+	protected OrderLine() {
+	}
+
+	public OrderLine(long itemId, String name, long unitPriceCents, int quantity) {
+		this.itemId = itemId;
+		this.name = name;
+		this.unitPrice = unitPriceCents;
+		this.quantity = quantity;
+	}
+
+	public static OrderLine of(CartLine line) {
+		return new OrderLine(line.getItemId(), line.getItem().getName(), line.getUnitPriceCents(), line.getQuantity());
+	}
+
+	public long getItemId() {
+		return itemId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@JsonProperty
+	public BigDecimal getUnitPrice() {
+		return Money.toAmount(unitPrice);
+	}
+
+	@JsonIgnore
+	public long getUnitPriceCents() {
+		return unitPrice;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+}
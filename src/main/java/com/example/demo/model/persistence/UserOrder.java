@@ -1,21 +1,28 @@
 package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
-import javax.persistence.CascadeType;
+import javax.persistence.CollectionTable;
 import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
-import javax.persistence.JoinTable;
-import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
+import javax.persistence.OrderColumn;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Immutable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
@@ -23,24 +30,41 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class UserOrder {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_order_seq")
+	@SequenceGenerator(name = "user_order_seq", sequenceName = "user_order_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
 	
-	@ManyToMany(cascade = CascadeType.ALL)
+	/**
+	 * Written with the order and never changed. Keyed by order id and line number, so
+	 * an order's lines are read as one range of the primary key. Being immutable, the
+	 * collection is not copied for dirty checking when the order is flushed.
+	 */
+	@ElementCollection
+	@Immutable
+	@CollectionTable(name = "order_line", joinColumns = @JoinColumn(name = "order_id"))
+	@OrderColumn(name = "line_no")
 	@JsonProperty
-	@Column
-    private List<Item> items;
+	private List<OrderLine> lines;
 	
 	@ManyToOne
 	@JoinColumn(name="user_id", nullable = false, referencedColumnName = "id")
 	@JsonProperty
     private User user;
 	
+	/** In cents. */
+	@Column(precision = 19, scale = Money.SCALE)
+	@Convert(converter = MoneyConverter.class)
+	private long total;
+
 	@JsonProperty
 	@Column
-	private BigDecimal total;
+	private Integer itemCount;
+
+	@JsonProperty
+	@Column
+	private Instant createdAt;
 
 	public Long getId() {
 		return id;
@@ -50,12 +74,35 @@ public class UserOrder {
 		this.id = id;
 	}
 
-	public List<Item> getItems() {
-		return items;
+	public List<OrderLine> getLines() {
+		return lines == null ? Collections.emptyList() : Collections.unmodifiableList(lines);
 	}
 
-	public void setItems(List<Item> items) {
-		this.items = items;
+	/**
+	 * Keeps the given list rather than a copy; it must not change afterwards.
+	 */
+	public void setLines(List<OrderLine> lines) {
+		this.lines = lines;
+	}
+
+	/**
+	 * One entry per unit, rebuilt from the order lines so the JSON shape stays the same
+	 * as when orders referenced the catalog items. Only the id, name and the price paid
+	 * are filled in.
+	 */
+	@JsonProperty
+	public List<Item> getItems() {
+		List<Item> items = new ArrayList<>();
+		for (OrderLine line : getLines()) {
+			Item item = new Item();
+			item.setId(line.getItemId());
+			item.setName(line.getName());
+			item.setPrice(line.getUnitPrice());
+			for (int i = 0; i < line.getQuantity(); i++) {
+				items.add(item);
+			}
+		}
+		return items;
 	}
 
 	public User getUser() {
@@ -66,19 +113,47 @@ public class UserOrder {
 		this.user = user;
 	}
 	
+	@JsonProperty
 	public BigDecimal getTotal() {
-		return total;
+		return Money.toAmount(total);
 	}
 
 	public void setTotal(BigDecimal total) {
-		this.total = total;
+		this.total = Money.toCents(total);
+	}
+
+	@JsonIgnore
+	public long getTotalCents() {
+		return total;
+	}
+
+	public void setTotalCents(long totalCents) {
+		this.total = totalCents;
+	}
+
+	public Integer getItemCount() {
+		return itemCount;
+	}
+
+	public void setItemCount(Integer itemCount) {
+		this.itemCount = itemCount;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Instant createdAt) {
+		this.createdAt = createdAt;
 	}
 
 	public static UserOrder createFromCart(Cart cart) {
 		UserOrder order = new UserOrder();
-		order.setItems(cart.getItems().stream().collect(Collectors.toList()));
-		order.setTotal(cart.getTotal());
+		order.setLines(cart.getOrderLines());
+		order.setTotalCents(cart.getTotalCents());
 		order.setUser(cart.getUser());
+		order.setItemCount(cart.getUnitCount());
+		order.setCreatedAt(Instant.now());
 		return order;
 	}
 	
@@ -1,5 +1,8 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.example.demo.model.persistence.Cart;
@@ -7,4 +10,10 @@ import com.example.demo.model.persistence.User;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
 	Cart findByUser(User user);
+
+	/**
+	 * Loads the cart together with its lines, their items and the owning user in one query.
+	 */
+	@EntityGraph(attributePaths = {"lines", "lines.item", "user"})
+	Optional<Cart> findWithLinesById(long id);
 }
@@ -1,12 +1,33 @@
 package com.example.demo.model.persistence.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.example.demo.model.persistence.Item;
 
 public interface ItemRepository extends JpaRepository<Item, Long> {
 	public List<Item> findByName(String name);
 
+	/**
+	 * Keyset page: the first {@code pageable.getPageSize()} items with an id above {@code id}.
+	 */
+	public List<Item> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+	/**
+	 * All items in id order, read through a forward-only cursor. Must be consumed
+	 * inside a transaction and closed afterwards.
+	 */
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+	@Query("select i from Item i order by i.id")
+	public Stream<Item> streamAllOrderById();
+
 }
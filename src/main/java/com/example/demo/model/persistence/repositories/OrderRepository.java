@@ -1,12 +1,42 @@
 package com.example.demo.model.persistence.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH;
+
 import java.util.List;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import com.example.demo.model.persistence.OrderLine;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.responses.OrderSummary;
 
 public interface OrderRepository extends JpaRepository<UserOrder, Long> {
 	List<UserOrder> findByUser(User user);
+
+	/**
+	 * A user's orders with their lines and user fetched in the same query.
+	 */
+	@QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+	@Query("select distinct o from UserOrder o join fetch o.user left join fetch o.lines where o.user.id = :userId")
+	List<UserOrder> findByUserId(@Param("userId") long userId);
+
+	/**
+	 * Keyset page of a user's orders, newest first, starting below {@code beforeId}.
+	 */
+	@Query("select new com.example.demo.model.responses.OrderSummary(o.id, o.total, o.itemCount, o.createdAt) "
+			+ "from UserOrder o where o.user.id = :userId and o.id < :beforeId order by o.id desc")
+	List<OrderSummary> findSummariesByUserId(@Param("userId") long userId, @Param("beforeId") long beforeId,
+											 Pageable pageable);
+
+	boolean existsByIdAndUserId(long id, long userId);
+
+	@Query("select l from UserOrder o join o.lines l where o.id = :orderId order by index(l)")
+	List<OrderLine> findLinesByOrderId(@Param("orderId") long orderId);
 }
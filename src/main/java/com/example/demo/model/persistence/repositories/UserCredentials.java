@@ -0,0 +1,11 @@
+package com.example.demo.model.persistence.repositories;
+
+/**
+ * The username and password hash of a user, all that is needed to check a login.
+ */
+public interface UserCredentials {
+
+	String getUsername();
+
+	String getPassword();
+}
@@ -1,9 +1,18 @@
 package com.example.demo.model.persistence.repositories;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.example.demo.model.persistence.User;
 
 public interface UserRepository extends JpaRepository<User, Long> {
+	@EntityGraph(attributePaths = "cart")
 	User findByUsername(String username);
+
+	/**
+	 * Reads only the username and password hash, without the user entity or its cart.
+	 */
+	@Query("select u.username as username, u.password as password from User u where u.username = ?1")
+	UserCredentials findCredentialsByUsername(String username);
 }
@@ -0,0 +1,38 @@
+package com.example.demo.model.requests;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class CartItemDelta {
+
+	@JsonProperty
+	private long itemId;
+
+	/** Units to add when positive, units to remove when negative. */
+	@JsonProperty
+	private int quantity;
+
+	public CartItemDelta() {
+	}
+
+	public CartItemDelta(long itemId, int quantity) {
+		this.itemId = itemId;
+		this.quantity = quantity;
+	}
+
+	public long getItemId() {
+		return itemId;
+	}
+
+	public void setItemId(long itemId) {
+		this.itemId = itemId;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(int quantity) {
+		this.quantity = quantity;
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.example.demo.model.responses;
+
+import java.util.List;
+
+import com.example.demo.model.persistence.Item;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class ItemPage {
+
+	@JsonProperty
+	private final List<Item> items;
+
+	/** Id to pass as {@code after} for the next page, or {@code null} on the last page. */
+	@JsonProperty
+	private final Long nextCursor;
+
+	public ItemPage(List<Item> items, Long nextCursor) {
+		this.items = items;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<Item> getItems() {
+		return items;
+	}
+
+	public Long getNextCursor() {
+		return nextCursor;
+	}
+
+}
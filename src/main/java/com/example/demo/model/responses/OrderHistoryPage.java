@@ -0,0 +1,29 @@
+package com.example.demo.model.responses;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class OrderHistoryPage {
+
+	@JsonProperty
+	private final List<OrderSummary> orders;
+
+	/** Id to pass as {@code before} for the next (older) page, or {@code null} on the last page. */
+	@JsonProperty
+	private final Long nextCursor;
+
+	public OrderHistoryPage(List<OrderSummary> orders, Long nextCursor) {
+		this.orders = orders;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<OrderSummary> getOrders() {
+		return orders;
+	}
+
+	public Long getNextCursor() {
+		return nextCursor;
+	}
+
+}
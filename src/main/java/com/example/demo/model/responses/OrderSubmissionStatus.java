@@ -0,0 +1,46 @@
+package com.example.demo.model.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class OrderSubmissionStatus {
+
+	public enum State { PENDING, COMPLETED, FAILED }
+
+	@JsonProperty
+	private final String submissionId;
+
+	@JsonProperty
+	private final State state;
+
+	/** Id of the persisted order, once the submission has completed. */
+	@JsonProperty
+	private final Long orderId;
+
+	/** Whether this answers a repeated submission with an already used idempotency key. */
+	@JsonProperty
+	private final boolean replayed;
+
+	public OrderSubmissionStatus(String submissionId, State state, Long orderId, boolean replayed) {
+		this.submissionId = submissionId;
+		this.state = state;
+		this.orderId = orderId;
+		this.replayed = replayed;
+	}
+
+	public String getSubmissionId() {
+		return submissionId;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public Long getOrderId() {
+		return orderId;
+	}
+
+	public boolean isReplayed() {
+		return replayed;
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import com.example.demo.model.persistence.Money;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Order history entry read without loading the order's items.
+ */
+public class OrderSummary {
+
+	@JsonProperty
+	private final Long id;
+
+	/** In cents. */
+	private final long total;
+
+	@JsonProperty
+	private final Integer itemCount;
+
+	@JsonProperty
+	private final Instant createdAt;
+
+	public OrderSummary(Long id, Long totalCents, Integer itemCount, Instant createdAt) {
+		this.id = id;
+		this.total = totalCents;
+		this.itemCount = itemCount;
+		this.createdAt = createdAt;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	@JsonProperty
+	public BigDecimal getTotal() {
+		return Money.toAmount(total);
+	}
+
+	public Integer getItemCount() {
+		return itemCount;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+}
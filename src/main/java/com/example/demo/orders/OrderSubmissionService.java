@@ -0,0 +1,314 @@
+package com.example.demo.orders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.cart.CartEngine;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.CartItemDelta;
+import com.example.demo.model.responses.OrderSubmissionStatus;
+import com.example.demo.model.responses.OrderSubmissionStatus.State;
+
+/**
+ * Accepts order submissions into a bounded queue and persists them from a small pool
+ * of worker threads, one transaction per batch. Submissions carrying an idempotency
+ * key are deduplicated per user for a configurable time, and their status can be
+ * queried for the same period.
+ *
+ * <p>The ordered units leave the cart before the submission is queued, all of them or
+ * none, so a cart read by two submissions at once is ordered only once. They go back
+ * into the cart if the queue is full or the order cannot be written.
+ */
+@Component
+public class OrderSubmissionService {
+
+	private static final Logger log = LoggerFactory.getLogger(OrderSubmissionService.class);
+
+	private final OrderRepository orderRepository;
+	private final UserRepository userRepository;
+	private final CartEngine cartEngine;
+	private final TransactionTemplate transactionTemplate;
+	private final int workers;
+	private final int batchSize;
+	private final long retentionMillis;
+
+	private final BlockingQueue<Submission> queue;
+	private final Map<String, Submission> submissions = new ConcurrentHashMap<>();
+	private final Map<String, Submission> idempotencyKeys = new ConcurrentHashMap<>();
+	private final List<Thread> workerThreads = new ArrayList<>();
+	private volatile boolean running;
+	private volatile long lastPurge;
+
+	@Autowired
+	public OrderSubmissionService(OrderRepository orderRepository, UserRepository userRepository,
+								  CartEngine cartEngine, PlatformTransactionManager transactionManager,
+								  @Value("${order.submission.workers:2}") int workers,
+								  @Value("${order.submission.queue-capacity:10000}") int queueCapacity,
+								  @Value("${order.submission.batch-size:100}") int batchSize,
+								  @Value("${order.submission.retention:PT10M}") Duration retention) {
+		this.orderRepository = orderRepository;
+		this.userRepository = userRepository;
+		this.cartEngine = cartEngine;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.workers = workers;
+		this.batchSize = batchSize;
+		this.retentionMillis = retention.toMillis();
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+	}
+
+	@PostConstruct
+	public synchronized void start() {
+		running = true;
+		for (int i = 0; i < workers; i++) {
+			Thread worker = new Thread(this::work, "order-submission-" + i);
+			worker.setDaemon(true);
+			worker.start();
+			workerThreads.add(worker);
+		}
+	}
+
+	/**
+	 * Stops accepting work and waits for the workers to persist what is already queued.
+	 */
+	@PreDestroy
+	public synchronized void shutdown() throws InterruptedException {
+		running = false;
+		for (Thread worker : workerThreads) {
+			worker.join(TimeUnit.SECONDS.toMillis(30));
+		}
+		workerThreads.clear();
+	}
+
+	/**
+	 * Takes the given cart's contents out of the cart and queues them as an order.
+	 * Units another request added in the meantime stay in the cart. If the user already
+	 * submitted with the same idempotency key, the earlier submission is returned
+	 * instead and the cart is left alone.
+	 *
+	 * @return the submission status, or {@code null} if the queue is full and the
+	 *         units were put back
+	 * @throws OptimisticLockingFailureException if the cart no longer holds all of the
+	 *                                           units, or kept changing while they were
+	 *                                           taken out
+	 */
+	public OrderSubmissionStatus submit(long userId, Cart cart, String idempotencyKey) {
+		Submission submission = new Submission(userId, cart, System.currentTimeMillis() + retentionMillis);
+
+		if (idempotencyKey != null) {
+			Submission previous = idempotencyKeys.putIfAbsent(userId + ":" + idempotencyKey, submission);
+			if (previous != null) {
+				return previous.status(true);
+			}
+			submission.idempotencyKey = userId + ":" + idempotencyKey;
+		}
+		try {
+			changeCart(submission, -1);
+		} catch (RuntimeException e) {
+			forgetKey(submission);
+			throw e;
+		}
+		if (!running || !queue.offer(submission)) {
+			forgetKey(submission);
+			changeCart(submission, 1);
+			return null;
+		}
+		submissions.put(submission.id, submission);
+		return submission.status(false);
+	}
+
+	/**
+	 * @return the status of the user's earlier submission with this idempotency key,
+	 *         or {@code null} if there is none
+	 */
+	public OrderSubmissionStatus findByIdempotencyKey(long userId, String idempotencyKey) {
+		Submission previous = idempotencyKeys.get(userId + ":" + idempotencyKey);
+		return previous == null ? null : previous.status(true);
+	}
+
+	/**
+	 * @return the submission's status for the given user, or {@code null} if it is
+	 *         unknown or has expired
+	 */
+	public OrderSubmissionStatus getStatus(long userId, String submissionId) {
+		Submission submission = submissions.get(submissionId);
+		if (submission == null || submission.userId != userId) {
+			return null;
+		}
+		return submission.status(false);
+	}
+
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	private void work() {
+		List<Submission> batch = new ArrayList<>(batchSize);
+		while (running || !queue.isEmpty()) {
+			try {
+				purgeExpired();
+				Submission first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				persist(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void persist(List<Submission> batch) {
+		try {
+			persistInTransaction(batch);
+		} catch (RuntimeException e) {
+			log.error("Order batch of {} failed, retrying one by one", batch.size(), e);
+			for (Submission submission : batch) {
+				try {
+					persistInTransaction(Collections.singletonList(submission));
+				} catch (RuntimeException single) {
+					log.error("Order submission {} failed", submission.id, single);
+					returnToCart(submission);
+					submission.state = State.FAILED;
+				}
+			}
+		}
+	}
+
+	private void persistInTransaction(List<Submission> batch) {
+		List<UserOrder> orders = transactionTemplate.execute(status -> {
+			List<UserOrder> created = new ArrayList<>(batch.size());
+			for (Submission submission : batch) {
+				created.add(submission.toOrder(userRepository));
+			}
+			return orderRepository.saveAll(created);
+		});
+		for (int i = 0; i < batch.size(); i++) {
+			Submission submission = batch.get(i);
+			submission.orderId = orders.get(i).getId();
+			submission.state = State.COMPLETED;
+		}
+	}
+
+	private void forgetKey(Submission submission) {
+		if (submission.idempotencyKey != null) {
+			idempotencyKeys.remove(submission.idempotencyKey, submission);
+		}
+	}
+
+	/**
+	 * Adds ({@code sign} 1) or removes ({@code sign} -1) the submission's units in the
+	 * cart they came from. Removing fails unless the cart still holds all of them.
+	 */
+	private void changeCart(Submission submission, int sign) {
+		List<CartItemDelta> deltas = new ArrayList<>(submission.lines.size());
+		for (OrderLine line : submission.lines) {
+			deltas.add(new CartItemDelta(line.getItemId(), sign * line.getQuantity()));
+		}
+		if (sign < 0) {
+			cartEngine.applyExactly(submission.cartId, submission.items, deltas);
+		} else {
+			cartEngine.apply(submission.cartId, submission.items, deltas);
+		}
+	}
+
+	/**
+	 * Puts a failed submission's units back into the cart, or logs them if that fails
+	 * too, so they are not lost without a trace.
+	 */
+	private void returnToCart(Submission submission) {
+		try {
+			changeCart(submission, 1);
+		} catch (RuntimeException e) {
+			log.error("Could not return the lines of order submission {} to cart #{}: {}", submission.id,
+					submission.cartId, submission.lines.stream()
+							.map(line -> line.getQuantity() + " x item #" + line.getItemId())
+							.collect(Collectors.joining(", ")), e);
+		}
+	}
+
+	private void purgeExpired() {
+		long now = System.currentTimeMillis();
+		if (now - lastPurge < 1000) {
+			return;
+		}
+		lastPurge = now;
+		submissions.values().removeIf(s -> s.expiresAt <= now && s.state != State.PENDING);
+		idempotencyKeys.values().removeIf(s -> s.expiresAt <= now && s.state != State.PENDING);
+	}
+
+	private static final class Submission {
+		private final String id = UUID.randomUUID().toString();
+		private final long userId;
+		private final long cartId;
+		private final Map<Long, Item> items;
+		private final List<OrderLine> lines;
+		private final int itemCount;
+		private final long totalCents;
+		private final Instant createdAt = Instant.now();
+		private final long expiresAt;
+		private String idempotencyKey;
+		private volatile State state = State.PENDING;
+		private volatile Long orderId;
+
+		private Submission(long userId, Cart cart, long expiresAt) {
+			this.userId = userId;
+			this.cartId = cart.getId();
+			this.items = new HashMap<>();
+			for (CartLine line : cart.getLines()) {
+				items.put(line.getItemId(), line.getItem());
+			}
+			this.expiresAt = expiresAt;
+			this.lines = cart.getOrderLines();
+			this.itemCount = cart.getUnitCount();
+			this.totalCents = cart.getTotalCents();
+		}
+
+		private UserOrder toOrder(UserRepository userRepository) {
+			UserOrder order = new UserOrder();
+			order.setUser(userRepository.getOne(userId));
+			order.setLines(lines);
+			order.setTotalCents(totalCents);
+			order.setItemCount(itemCount);
+			order.setCreatedAt(createdAt);
+			return order;
+		}
+
+		private OrderSubmissionStatus status(boolean replayed) {
+			return new OrderSubmissionStatus(id, state, orderId, replayed);
+		}
+	}
+}
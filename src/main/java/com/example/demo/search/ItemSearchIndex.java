@@ -0,0 +1,203 @@
+package com.example.demo.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.ItemChangedEvent;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+
+/**
+ * In-memory inverted index over item names and descriptions. Every query term is
+ * matched as a prefix of the indexed terms, so partial input already finds items;
+ * results are ranked by where and how exactly the terms matched.
+ */
+@Component
+public class ItemSearchIndex {
+
+	static final int NAME_WEIGHT = 3;
+	static final int DESCRIPTION_WEIGHT = 1;
+	static final int EXACT_TERM_BONUS = 2;
+
+	private final ItemRepository itemRepository;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/** term -> (item id -> weight of the term in that item) */
+	private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+	private final Map<Long, Item> items = new HashMap<>();
+	private final Map<Long, Map<String, Integer>> termsByItem = new HashMap<>();
+
+	@Autowired
+	public ItemSearchIndex(ItemRepository itemRepository) {
+		this.itemRepository = itemRepository;
+	}
+
+	@PostConstruct
+	public void rebuild() {
+		List<Item> all = itemRepository.findAll();
+		lock.writeLock().lock();
+		try {
+			postings.clear();
+			items.clear();
+			termsByItem.clear();
+			all.forEach(this::addUnlocked);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onItemChanged(ItemChangedEvent event) {
+		if (event.getType() == ItemChangedEvent.Type.REMOVED) {
+			remove(event.getItem().getId());
+		} else {
+			index(event.getItem());
+		}
+	}
+
+	public void index(Item item) {
+		lock.writeLock().lock();
+		try {
+			removeUnlocked(item.getId());
+			addUnlocked(item);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(Long itemId) {
+		lock.writeLock().lock();
+		try {
+			removeUnlocked(itemId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return items.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return up to {@code limit} items containing every term of {@code query}
+	 *         (as a word or word prefix), best matches first
+	 */
+	public List<Item> search(String query, int limit) {
+		List<String> terms = tokenize(query);
+		if (terms.isEmpty() || limit <= 0) {
+			return Collections.emptyList();
+		}
+		lock.readLock().lock();
+		try {
+			Map<Long, Integer> scores = null;
+			for (String term : terms) {
+				Map<Long, Integer> termScores = scoreTerm(term);
+				scores = scores == null ? termScores : intersect(scores, termScores);
+				if (scores.isEmpty()) {
+					return Collections.emptyList();
+				}
+			}
+			List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(scores.entrySet());
+			ranked.sort((a, b) -> a.getValue().equals(b.getValue())
+					? Long.compare(a.getKey(), b.getKey())
+					: Integer.compare(b.getValue(), a.getValue()));
+			List<Item> result = new ArrayList<>(Math.min(limit, ranked.size()));
+			for (int i = 0; i < ranked.size() && i < limit; i++) {
+				result.add(items.get(ranked.get(i).getKey()));
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		if (text == null) {
+			return tokens;
+		}
+		String lower = text.toLowerCase(Locale.ROOT);
+		int start = -1;
+		for (int i = 0; i <= lower.length(); i++) {
+			boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+			if (wordChar && start < 0) {
+				start = i;
+			} else if (!wordChar && start >= 0) {
+				tokens.add(lower.substring(start, i));
+				start = -1;
+			}
+		}
+		return tokens;
+	}
+
+	/**
+	 * Best score per item for one query term across all indexed terms it is a prefix of.
+	 */
+	private Map<Long, Integer> scoreTerm(String term) {
+		Map<Long, Integer> scores = new HashMap<>();
+		for (Map.Entry<String, Map<Long, Integer>> posting
+				: postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+			int bonus = posting.getKey().length() == term.length() ? EXACT_TERM_BONUS : 1;
+			for (Map.Entry<Long, Integer> hit : posting.getValue().entrySet()) {
+				scores.merge(hit.getKey(), hit.getValue() * bonus, Math::max);
+			}
+		}
+		return scores;
+	}
+
+	private static Map<Long, Integer> intersect(Map<Long, Integer> scores, Map<Long, Integer> termScores) {
+		Map<Long, Integer> result = new HashMap<>();
+		for (Map.Entry<Long, Integer> score : scores.entrySet()) {
+			Integer termScore = termScores.get(score.getKey());
+			if (termScore != null) {
+				result.put(score.getKey(), score.getValue() + termScore);
+			}
+		}
+		return result;
+	}
+
+	private void addUnlocked(Item item) {
+		Map<String, Integer> terms = new HashMap<>();
+		tokenize(item.getName()).forEach(t -> terms.merge(t, NAME_WEIGHT, Integer::sum));
+		tokenize(item.getDescription()).forEach(t -> terms.merge(t, DESCRIPTION_WEIGHT, Integer::sum));
+
+		items.put(item.getId(), item);
+		termsByItem.put(item.getId(), terms);
+		terms.forEach((term, weight) ->
+				postings.computeIfAbsent(term, t -> new HashMap<>()).put(item.getId(), weight));
+	}
+
+	private void removeUnlocked(Long itemId) {
+		items.remove(itemId);
+		Map<String, Integer> terms = termsByItem.remove(itemId);
+		if (terms == null) {
+			return;
+		}
+		for (String term : terms.keySet()) {
+			Map<Long, Integer> posting = postings.get(term);
+			posting.remove(itemId);
+			if (posting.isEmpty()) {
+				postings.remove(term);
+			}
+		}
+	}
+}
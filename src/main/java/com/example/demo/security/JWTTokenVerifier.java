@@ -0,0 +1,125 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verifies JWT bearer tokens with the shared {@link JWTVerifier} of the signing key named
+ * in the token's {@code kid} header, and remembers recently verified tokens, so repeat
+ * requests from the same client skip the HMAC check. Cached entries are bounded in number,
+ * evicted in order of token expiry and re-verified once a signing key is withdrawn.
+ */
+@Component
+public class JWTTokenVerifier {
+    private static final Comparator<VerifiedToken> BY_EXPIRY =
+            Comparator.comparingLong((VerifiedToken t) -> t.expiresAt).thenComparingLong(t -> t.sequence);
+
+    private final SigningKeys signingKeys;
+    private final int maxEntries;
+    private final Map<String, VerifiedToken> tokens = new ConcurrentHashMap<>();
+    private final NavigableSet<VerifiedToken> expiryOrder = new ConcurrentSkipListSet<>(BY_EXPIRY);
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public JWTTokenVerifier(SigningKeys signingKeys) {
+        this(signingKeys, SecurityConstants.VERIFIED_TOKEN_CACHE_SIZE);
+    }
+
+    JWTTokenVerifier(SigningKeys signingKeys, int maxEntries) {
+        this.signingKeys = signingKeys;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the subject of the given token, verifying its signature and expiry unless
+     * the same token was verified before and has not expired since.
+     *
+     * @throws com.auth0.jwt.exceptions.JWTVerificationException if the token is invalid
+     */
+    public String verify(String token) {
+        long now = System.currentTimeMillis();
+        long revision = signingKeys.getRevision();
+        VerifiedToken cached = tokens.get(token);
+
+        if (cached != null && cached.expiresAt > now && cached.keyRevision == revision) {
+            hits.increment();
+            return cached.subject;
+        }
+        misses.increment();
+
+        DecodedJWT jwt = JWT.decode(token);
+        SigningKeys.SigningKey key = signingKeys.find(jwt.getKeyId());
+        if (key == null) {
+            throw new JWTVerificationException("Unknown signing key " + jwt.getKeyId());
+        }
+        key.getVerifier().verify(jwt);
+        if (jwt.getExpiresAt() != null) {
+            remember(token, jwt.getSubject(), jwt.getExpiresAt().getTime(), revision, now);
+        }
+        return jwt.getSubject();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    private void remember(String token, String subject, long expiresAt, long keyRevision, long now) {
+        VerifiedToken entry = new VerifiedToken(token, subject, expiresAt, keyRevision, sequence.incrementAndGet());
+
+        VerifiedToken previous = tokens.put(token, entry);
+        if (previous != null) {
+            expiryOrder.remove(previous);
+        }
+        expiryOrder.add(entry);
+
+        Iterator<VerifiedToken> oldestFirst = expiryOrder.iterator();
+        while (oldestFirst.hasNext()) {
+            VerifiedToken oldest = oldestFirst.next();
+            if (tokens.size() <= maxEntries && oldest.expiresAt > now) {
+                break;
+            }
+            if (expiryOrder.remove(oldest)) {
+                tokens.remove(oldest.token, oldest);
+            }
+        }
+    }
+
+    private static final class VerifiedToken {
+        private final String token;
+        private final String subject;
+        private final long expiresAt;
+        private final long keyRevision;
+        private final long sequence;
+
+        private VerifiedToken(String token, String subject, long expiresAt, long keyRevision, long sequence) {
+            this.token = token;
+            this.subject = subject;
+            this.expiresAt = expiresAt;
+            this.keyRevision = keyRevision;
+            this.sequence = sequence;
+        }
+    }
+}
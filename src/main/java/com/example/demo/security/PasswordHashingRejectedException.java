@@ -0,0 +1,15 @@
+package com.example.demo.security;
+
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+
+/**
+ * Thrown when the password hashing pool is saturated. Extends
+ * {@link InternalAuthenticationServiceException} so a login attempt fails immediately
+ * instead of being retried by a parent authentication manager.
+ */
+public class PasswordHashingRejectedException extends InternalAuthenticationServiceException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+}
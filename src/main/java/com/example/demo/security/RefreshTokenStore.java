@@ -0,0 +1,189 @@
+package com.example.demo.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opaque, single-use refresh tokens. Only the first 128 bits of each token's SHA-256
+ * hash are kept, next to the username and expiry, so an entry is a few dozen bytes and
+ * a stolen snapshot holds no usable tokens.
+ *
+ * <p>If {@code security.refresh-token.file} is set, the store is written there on
+ * shutdown and read back on startup, so sessions survive a restart.
+ */
+@Component
+public class RefreshTokenStore {
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenStore.class);
+    private static final int TOKEN_BYTES = 32;
+    private static final int FORMAT_VERSION = 1;
+    private static final long PURGE_INTERVAL_MILLIS = 60_000;
+
+    private final long ttlMillis;
+    private final Path file;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<TokenHash, Entry> entries = new ConcurrentHashMap<>();
+    private volatile long lastPurge;
+
+    @Autowired
+    public RefreshTokenStore(@Value("${security.refresh-token.ttl:P14D}") Duration ttl,
+                             @Value("${security.refresh-token.file:}") String file) {
+        this.ttlMillis = ttl.toMillis();
+        this.file = file.isEmpty() ? null : Paths.get(file);
+    }
+
+    /**
+     * @return a new refresh token for the user
+     */
+    public String issue(String username) {
+        long now = System.currentTimeMillis();
+        if (now - lastPurge >= PURGE_INTERVAL_MILLIS) {
+            lastPurge = now;
+            purgeExpired(now);
+        }
+
+        byte[] token = new byte[TOKEN_BYTES];
+        random.nextBytes(token);
+        entries.put(TokenHash.of(token), new Entry(username, now + ttlMillis));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    /**
+     * Redeems a refresh token. Each token can be redeemed once.
+     *
+     * @return the user the token was issued to, or {@code null} if the token is unknown,
+     *         already used or expired
+     */
+    public String redeem(String token) {
+        byte[] decoded;
+        try {
+            decoded = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (decoded.length != TOKEN_BYTES) {
+            return null;
+        }
+        Entry entry = entries.remove(TokenHash.of(decoded));
+        return entry == null || entry.expiresAt <= System.currentTimeMillis() ? null : entry.username;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                log.warn("Ignoring refresh tokens in {}, unknown format", file);
+                return;
+            }
+            for (int count = in.readInt(); count > 0; count--) {
+                TokenHash hash = new TokenHash(in.readLong(), in.readLong());
+                long expiresAt = in.readLong();
+                String username = in.readUTF();
+                if (expiresAt > now) {
+                    entries.put(hash, new Entry(username, expiresAt));
+                }
+            }
+        }
+        log.info("Loaded {} refresh tokens from {}", entries.size(), file);
+    }
+
+    @PreDestroy
+    public void save() throws IOException {
+        if (file == null) {
+            return;
+        }
+        purgeExpired(System.currentTimeMillis());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            // Copy first, the entry count has to match what is written
+            Map<TokenHash, Entry> snapshot = new HashMap<>(entries);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<TokenHash, Entry> entry : snapshot.entrySet()) {
+                out.writeLong(entry.getKey().high);
+                out.writeLong(entry.getKey().low);
+                out.writeLong(entry.getValue().expiresAt);
+                out.writeUTF(entry.getValue().username);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void purgeExpired(long now) {
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+    }
+
+    private static final class TokenHash {
+        private final long high;
+        private final long low;
+
+        private TokenHash(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        static TokenHash of(byte[] token) {
+            try {
+                ByteBuffer digest = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token));
+                return new TokenHash(digest.getLong(), digest.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TokenHash)) {
+                return false;
+            }
+            TokenHash other = (TokenHash) o;
+            return high == other.high && low == other.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high) * 31 + Long.hashCode(low);
+        }
+    }
+
+    private static final class Entry {
+        private final String username;
+        private final long expiresAt;
+
+        private Entry(String username, long expiresAt) {
+            this.username = username;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -2,8 +2,11 @@ package com.example.demo.security;
 
 public class SecurityConstants {
     public static final String SECRET = "topsecretkey";
-    public static final long EXPIRATION_TIME = 864_000_000; // 10 days
     public static final String TOKEN_PREFIX = "Bearer ";
     public static final String HEADER_STRING = "Authorization";
+    public static final String REFRESH_HEADER = "Refresh-Token";
     public static final String SIGN_UP_URL = "/api/user/create";
+    public static final String REFRESH_URL = "/api/token/refresh";
+    public static final String METRICS_URL = "/metrics";
+    public static final int VERIFIED_TOKEN_CACHE_SIZE = 10_000;
 }
@@ -0,0 +1,233 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of the HMAC keys tokens are signed and verified with, selected by the token's
+ * {@code kid} header. New tokens are signed with the active key while every listed key
+ * still verifies, so a key can be rotated without logging everyone out.
+ *
+ * <p>Keys come from a properties file with one {@code key.<kid>=<secret>} line per key
+ * and an {@code active=<kid>} line, re-read whenever it changes. Without a file the
+ * built-in {@link SecurityConstants#SECRET} is the only key. The {@link Algorithm} and
+ * {@link JWTVerifier} for each key are built once per load.
+ */
+@Component
+public class SigningKeys {
+    static final String DEFAULT_KEY_ID = "default";
+
+    private static final Logger log = LoggerFactory.getLogger(SigningKeys.class);
+    private static final String ACTIVE = "active";
+    private static final String KEY_PREFIX = "key.";
+
+    private final Path file;
+    private final long reloadMillis;
+    private volatile KeySet keys;
+    private volatile long fileModified;
+    private ScheduledExecutorService reloader;
+
+    @Autowired
+    public SigningKeys(@Value("${security.jwt.keys-file:}") String file,
+                       @Value("${security.jwt.keys-reload-interval:PT30S}") Duration reloadInterval) throws IOException {
+        this.file = file.isEmpty() ? null : Paths.get(file);
+        this.reloadMillis = reloadInterval.toMillis();
+        if (this.file == null) {
+            keys = KeySet.of(DEFAULT_KEY_ID, Collections.singletonMap(DEFAULT_KEY_ID, SecurityConstants.SECRET), null);
+        } else {
+            fileModified = Files.getLastModifiedTime(this.file).toMillis();
+            keys = KeySet.of(read(this.file), null);
+        }
+    }
+
+    /**
+     * @return a registry holding the given keys, signing with {@code activeKeyId}
+     */
+    static SigningKeys of(String activeKeyId, Map<String, String> secrets) {
+        return new SigningKeys(KeySet.of(activeKeyId, secrets, null));
+    }
+
+    private SigningKeys(KeySet keys) {
+        this.file = null;
+        this.reloadMillis = 0;
+        this.keys = keys;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (file == null || reloadMillis <= 0) {
+            return;
+        }
+        reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "signing-keys-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reloader.scheduleWithFixedDelay(this::reloadIfModified, reloadMillis, reloadMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the key new tokens are signed with
+     */
+    public SigningKey active() {
+        return keys.active;
+    }
+
+    /**
+     * @return the key with the given id, the active key if {@code keyId} is {@code null},
+     *         or {@code null} if there is no such key
+     */
+    public SigningKey find(String keyId) {
+        KeySet current = keys;
+        return keyId == null ? current.active : current.byId.get(keyId);
+    }
+
+    /**
+     * Increases whenever a key is removed or its secret changes, so anything verified
+     * with an earlier revision has to be verified again.
+     */
+    public long getRevision() {
+        return keys.revision;
+    }
+
+    /**
+     * Re-reads the keys file if it changed since the last load. A file that cannot be
+     * read or has no usable active key is logged and the current keys are kept.
+     *
+     * @return whether new keys were loaded
+     */
+    public synchronized boolean reloadIfModified() {
+        if (file == null) {
+            return false;
+        }
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            if (modified == fileModified) {
+                return false;
+            }
+            keys = KeySet.of(read(file), keys);
+            fileModified = modified;
+            log.info("Loaded signing keys {} from {}, active key {}", keys.byId.keySet(), file, keys.active.id);
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Keeping current signing keys, cannot load {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    private static Properties read(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    /**
+     * One key: its id for the {@code kid} header, the algorithm to sign with and a
+     * verifier for tokens it signed.
+     */
+    public static final class SigningKey {
+        private final String id;
+        private final String secret;
+        private final Algorithm algorithm;
+        private final JWTVerifier verifier;
+
+        private SigningKey(String id, String secret) {
+            this.id = id;
+            this.secret = secret;
+            this.algorithm = Algorithm.HMAC512(secret.getBytes(StandardCharsets.UTF_8));
+            this.verifier = JWT.require(algorithm).build();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Algorithm getAlgorithm() {
+            return algorithm;
+        }
+
+        public JWTVerifier getVerifier() {
+            return verifier;
+        }
+    }
+
+    private static final class KeySet {
+        private final SigningKey active;
+        private final Map<String, SigningKey> byId;
+        private final long revision;
+
+        private KeySet(SigningKey active, Map<String, SigningKey> byId, long revision) {
+            this.active = active;
+            this.byId = byId;
+            this.revision = revision;
+        }
+
+        static KeySet of(Properties properties, KeySet previous) {
+            Map<String, String> secrets = new HashMap<>();
+            for (String name : properties.stringPropertyNames()) {
+                if (name.startsWith(KEY_PREFIX)) {
+                    secrets.put(name.substring(KEY_PREFIX.length()), properties.getProperty(name).trim());
+                }
+            }
+            return of(properties.getProperty(ACTIVE, "").trim(), secrets, previous);
+        }
+
+        static KeySet of(String activeKeyId, Map<String, String> secrets, KeySet previous) {
+            Map<String, SigningKey> byId = new HashMap<>();
+            for (Map.Entry<String, String> secret : secrets.entrySet()) {
+                if (secret.getValue().isEmpty()) {
+                    throw new IllegalArgumentException("empty secret for key " + secret.getKey());
+                }
+                byId.put(secret.getKey(), new SigningKey(secret.getKey(), secret.getValue()));
+            }
+            SigningKey active = byId.get(activeKeyId);
+            if (active == null) {
+                throw new IllegalArgumentException("active key '" + activeKeyId + "' is not listed");
+            }
+            long revision = 0;
+            if (previous != null) {
+                revision = previous.revision;
+                for (SigningKey key : previous.byId.values()) {
+                    SigningKey replacement = byId.get(key.id);
+                    if (replacement == null || !replacement.secret.equals(key.secret)) {
+                        revision++;
+                        break;
+                    }
+                }
+            }
+            return new KeySet(active, Collections.unmodifiableMap(byId), revision);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * Issues the tokens a client holds: a short-lived JWT access token signed with the
+ * active key, and an opaque refresh token that is traded for a new pair at
+ * {@link SecurityConstants#REFRESH_URL} without checking the password again.
+ */
+@Component
+public class TokenService {
+    private final SigningKeys signingKeys;
+    private final RefreshTokenStore refreshTokens;
+    private final long accessTokenTtlMillis;
+
+    @Autowired
+    public TokenService(SigningKeys signingKeys, RefreshTokenStore refreshTokens,
+                        @Value("${security.jwt.access-token-ttl:PT15M}") Duration accessTokenTtl) {
+        this.signingKeys = signingKeys;
+        this.refreshTokens = refreshTokens;
+        this.accessTokenTtlMillis = accessTokenTtl.toMillis();
+    }
+
+    public String createAccessToken(String username) {
+        return createToken(username, signingKeys.active(), accessTokenTtlMillis);
+    }
+
+    public String createRefreshToken(String username) {
+        return refreshTokens.issue(username);
+    }
+
+    /**
+     * Redeems a refresh token, which cannot be used again afterwards.
+     *
+     * @return the user the token was issued to, or {@code null} if it is not valid
+     */
+    public String redeemRefreshToken(String refreshToken) {
+        return refreshTokens.redeem(refreshToken);
+    }
+
+    static String createToken(String username, SigningKeys.SigningKey key, long ttlMillis) {
+        return JWT.create()
+                .withKeyId(key.getId())
+                .withSubject(username)
+                .withExpiresAt(new Date(System.currentTimeMillis() + ttlMillis))
+                .sign(key.getAlgorithm());
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo;
+
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the statement budgets under the {@code batching} persistence profile, where
+ * an order and all of its lines go out in a handful of JDBC batches.
+ */
+@ActiveProfiles("batching")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:batching;DB_CLOSE_DELAY=-1")
+public class BatchedWriteStatementBudgetTest extends EndpointStatementBudgetTest {
+
+    @Override
+    protected int submitBudget() {
+        return 3;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.demo;
+
+import com.example.demo.cart.CartUpdater;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Has 64 threads add and remove units in the same cart at once and checks that no
+ * update is lost: the final quantities are the sum of every thread's changes, the
+ * total matches the lines and concurrent updates shared transactions.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:cart-stress;DB_CLOSE_DELAY=-1")
+public class CartConcurrencyStressTest {
+    private static final String USERNAME = "stress";
+    private static final String PASSWORD = "stressPassword";
+    private static final int THREADS = 64;
+    private static final int ROUNDS = 10;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CartUpdater cartUpdater;
+
+    @Test
+    public void concurrent_updates_to_one_cart_are_all_applied() throws Exception {
+        mvc.perform(post("/api/user/create").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD
+                        + "\",\"confirmPassword\":\"" + PASSWORD + "\"}"));
+        String token = mvc.perform(post("/login")
+                .content("{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .andReturn().getResponse().getHeader("Authorization");
+
+        Item second = new Item();
+        second.setName("Stress Widget");
+        second.setPrice(new BigDecimal("1.25"));
+        second.setDescription("A second item for the stress test");
+        long[] itemIds = {1L, itemRepository.save(second).getId()};
+
+        AtomicIntegerArray expected = new AtomicIntegerArray(itemIds.length);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            results.add(pool.submit((Callable<Integer>) () -> {
+                start.await();
+                int failures = 0;
+                for (int round = 0; round < ROUNDS; round++) {
+                    int item = (thread + round) % itemIds.length;
+                    int units = 1 + round % 3;
+                    // Each thread only removes units it added itself, so no removal is cut short
+                    failures += modify(token, "addToCart", itemIds[item], units);
+                    expected.addAndGet(item, units);
+                    if (round % 2 == 1) {
+                        failures += modify(token, "removeFromCart", itemIds[item], 1);
+                        expected.addAndGet(item, -1);
+                    }
+                }
+                return failures;
+            }));
+        }
+
+        start.countDown();
+        int failures = 0;
+        for (Future<Integer> result : results) {
+            failures += result.get(2, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+        int requests = THREADS * (ROUNDS + ROUNDS / 2);
+
+        assertEquals("requests that did not succeed", 0, failures);
+        Cart cart = cartRepository.findWithLinesById(userRepository.findByUsername(USERNAME).getCart().getId()).get();
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartLine line : cart.getLines()) {
+            total = total.add(line.getUnitPrice().multiply(BigDecimal.valueOf(line.getQuantity())));
+        }
+        for (int i = 0; i < itemIds.length; i++) {
+            assertEquals(expected.get(i), cart.getQuantity(itemIds[i]));
+        }
+        assertEquals(0, total.compareTo(cart.getTotal()));
+        // Updates that queued up behind each other were written together
+        assertTrue("transactions " + cartUpdater.getBatchCount() + " for " + requests + " updates",
+                cartUpdater.getBatchCount() < requests);
+    }
+
+    private int modify(String token, String action, long itemId, int quantity) throws Exception {
+        int status = mvc.perform(post("/api/cart/" + action).header("Authorization", token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + USERNAME + "\",\"itemId\":" + itemId + ",\"quantity\":" + quantity + "}"))
+                .andReturn().getResponse().getStatus();
+        return status == 200 ? 0 : 1;
+    }
+}
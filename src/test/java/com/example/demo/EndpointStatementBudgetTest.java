@@ -0,0 +1,106 @@
+package com.example.demo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Runs each endpoint against the embedded database and fails when it executes more
+ * SQL statements than its budget, so N+1 loading shows up as a test failure.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+public class EndpointStatementBudgetTest {
+    private static final String USERNAME = "budget";
+    private static final String PASSWORD = "budgetPassword";
+    private static final int ORDERS = 5;
+    /** The cart holds {@code ORDERS * (ORDERS + 1) / 2} units of a single item. */
+    protected static final int CART_LINES = 1;
+
+    @Autowired
+    private MockMvc mvc;
+
+    private String token;
+
+    @Before
+    public void setUp() throws Exception {
+        perform(post("/api/user/create").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD
+                        + "\",\"confirmPassword\":\"" + PASSWORD + "\"}"));
+        MvcResult login = mvc.perform(post("/login")
+                .content("{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD + "\"}")).andReturn();
+        token = login.getResponse().getHeader("Authorization");
+        assertNotNull(token);
+
+        for (int i = 0; i < ORDERS; i++) {
+            addToCart(i + 1);
+            perform(post("/api/order/submit/" + USERNAME));
+        }
+    }
+
+    @Test
+    public void statement_budgets() throws Exception {
+        assertBudget("GET /api/user/{username}", 0, get("/api/user/" + USERNAME));
+        assertBudget("GET /api/item", 0, get("/api/item"));
+        assertBudget("POST /api/cart/addToCart", cartBudget(), cartRequest("/api/cart/addToCart", 1));
+        assertBudget("POST /api/cart/removeFromCart", cartBudget(), cartRequest("/api/cart/removeFromCart", 1));
+        assertBudget("POST /api/order/submit", submitBudget(), post("/api/order/submit/" + USERNAME));
+        assertBudget("GET /api/order/history", 1, get("/api/order/history/" + USERNAME));
+        assertBudget("GET /api/order/history/page", 1, get("/api/order/history/" + USERNAME + "/page"));
+    }
+
+    /**
+     * Reading the item, reading the cart with its lines, and updating the line and the cart.
+     */
+    protected int cartBudget() {
+        return 4;
+    }
+
+    /**
+     * Without JDBC batching order lines are written with one insert per line, however
+     * many units each line holds.
+     */
+    protected int submitBudget() {
+        return 2 + CART_LINES;
+    }
+
+    private void addToCart(int quantity) throws Exception {
+        perform(cartRequest("/api/cart/addToCart", quantity));
+    }
+
+    private MockHttpServletRequestBuilder cartRequest(String url, int quantity) {
+        return post(url).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + USERNAME + "\",\"itemId\":1,\"quantity\":" + quantity + "}");
+    }
+
+    private void assertBudget(String endpoint, int budget, MockHttpServletRequestBuilder request) throws Exception {
+        SqlStatementCounter.reset();
+        perform(request);
+        int statements = SqlStatementCounter.count();
+        assertTrue(endpoint + " ran " + statements + " statements, budget is " + budget, statements <= budget);
+    }
+
+    private MvcResult perform(MockHttpServletRequestBuilder request) throws Exception {
+        if (token != null) {
+            request.header("Authorization", token);
+        }
+        MvcResult result = mvc.perform(request).andReturn();
+        assertEquals(200, result.getResponse().getStatus());
+        return result;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the statement budgets with carts kept in memory. The flush interval is long
+ * enough that no write-behind happens while the budgets are measured.
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:memory-cart;DB_CLOSE_DELAY=-1",
+        "cart.engine=memory",
+        "cart.memory.flush-interval=1h"})
+public class InMemoryCartStatementBudgetTest extends EndpointStatementBudgetTest {
+
+    /**
+     * Only the item is read, the cart is already in memory.
+     */
+    @Override
+    protected int cartBudget() {
+        return 1;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Serves a few requests and checks they show up on the Prometheus metrics endpoint.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:metrics;DB_CLOSE_DELAY=-1")
+public class MetricsEndpointTest {
+    private static final String USERNAME = "metrics";
+    private static final String PASSWORD = "metricsPassword";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    public void requests_are_recorded_per_endpoint_and_phase() throws Exception {
+        mvc.perform(post("/api/user/create").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD
+                        + "\",\"confirmPassword\":\"" + PASSWORD + "\"}"));
+        String token = mvc.perform(post("/login")
+                .content("{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .andReturn().getResponse().getHeader("Authorization");
+        mvc.perform(post("/api/cart/addToCart").header("Authorization", token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + USERNAME + "\",\"itemId\":1,\"quantity\":2}"));
+        mvc.perform(get("/api/cart/none"));
+
+        MvcResult scrape = mvc.perform(get("/metrics")).andReturn();
+        String body = scrape.getResponse().getContentAsString();
+
+        assertEquals(200, scrape.getResponse().getStatus());
+        assertTrue(body.contains("http_requests_total{endpoint=\"POST /api/cart/addToCart\",status=\"2xx\"} 1"));
+        assertTrue(body.contains("http_requests_total{endpoint=\"POST /login\",status=\"2xx\"} 1"));
+        assertTrue(body.contains("http_requests_total{endpoint=\"unmapped\",status=\"4xx\"} 1"));
+        for (String phase : new String[]{"jwt_verify", "user_lookup", "item_lookup", "persistence", "serialization"}) {
+            assertTrue(phase, body.contains("http_request_phase_duration_seconds_count"
+                    + "{endpoint=\"POST /api/cart/addToCart\",phase=\"" + phase + "\"} 1"));
+        }
+        assertTrue(valueOf(body, "http_request_db_statements_total{endpoint=\"POST /api/cart/addToCart\"}") > 0);
+    }
+
+    @Test
+    public void rejected_tokens_are_timed() throws Exception {
+        try {
+            mvc.perform(get("/api/item").header("Authorization", "Bearer not-a-token"));
+            fail("Expected the malformed token to be rejected");
+        } catch (JWTVerificationException expected) {
+            // The filter lets verification failures through
+        }
+
+        String body = mvc.perform(get("/metrics")).andReturn().getResponse().getContentAsString();
+
+        assertEquals(1, valueOf(body, "http_request_phase_duration_seconds_count"
+                + "{endpoint=\"unmapped\",phase=\"jwt_verify\"}"), 0);
+    }
+
+    private static double valueOf(String body, String series) {
+        for (String line : body.split("\n")) {
+            if (line.startsWith(series + " ")) {
+                return Double.parseDouble(line.substring(series.length() + 1));
+            }
+        }
+        throw new AssertionError(series + " missing from\n" + body);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo;
+
+import com.example.demo.metrics.StatementCountingInspector;
+
+/**
+ * Hibernate statement inspector counting the SQL statements prepared on the current
+ * thread. Registered for tests through {@code hibernate.session_factory.statement_inspector},
+ * in place of the application's own inspector, which it still feeds.
+ */
+public class SqlStatementCounter extends StatementCountingInspector {
+    private static final ThreadLocal<Integer> COUNT = ThreadLocal.withInitial(() -> 0);
+
+    public static void reset() {
+        COUNT.set(0);
+    }
+
+    public static int count() {
+        return COUNT.get();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.set(COUNT.get() + 1);
+        return super.inspect(sql);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo;
+
+import com.example.demo.security.SecurityConstants;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Logs in once and keeps the session going with refresh tokens alone.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:token-refresh;DB_CLOSE_DELAY=-1")
+public class TokenRefreshTest {
+    private static final String USERNAME = "refresh";
+    private static final String PASSWORD = "refreshPassword";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    public void refresh_token_issues_new_tokens_once() throws Exception {
+        mvc.perform(post("/api/user/create").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD
+                        + "\",\"confirmPassword\":\"" + PASSWORD + "\"}"));
+        MockHttpServletResponse login = mvc.perform(post("/login")
+                .content("{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .andReturn().getResponse();
+        String refreshToken = login.getHeader(SecurityConstants.REFRESH_HEADER);
+        assertNotNull(login.getHeader(SecurityConstants.HEADER_STRING));
+        assertNotNull(refreshToken);
+
+        MockHttpServletResponse refreshed = refresh(refreshToken);
+        assertEquals(200, refreshed.getStatus());
+        String accessToken = refreshed.getHeader(SecurityConstants.HEADER_STRING);
+        assertNotNull(refreshed.getHeader(SecurityConstants.REFRESH_HEADER));
+        assertNotEquals(refreshToken, refreshed.getHeader(SecurityConstants.REFRESH_HEADER));
+
+        assertEquals(200, mvc.perform(get("/api/user/" + USERNAME).header(SecurityConstants.HEADER_STRING, accessToken))
+                .andReturn().getResponse().getStatus());
+
+        // A refresh token is single use
+        assertEquals(401, refresh(refreshToken).getStatus());
+    }
+
+    private MockHttpServletResponse refresh(String refreshToken) throws Exception {
+        return mvc.perform(post(SecurityConstants.REFRESH_URL).header(SecurityConstants.REFRESH_HEADER, refreshToken))
+                .andReturn().getResponse();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo;
+
+import com.example.demo.cart.InMemoryCartStore;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Changes carts through the in-memory engine and checks that they reach the
+ * {@code cart} table only when the store flushes.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:write-behind;DB_CLOSE_DELAY=-1",
+        "cart.engine=memory",
+        "cart.memory.flush-interval=1h",
+        "cart.memory.idle-timeout=0s"})
+public class WriteBehindCartTest {
+    private static final String USERNAME = "writebehind";
+    private static final String PASSWORD = "writeBehindPassword";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private InMemoryCartStore store;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Test
+    public void cart_changes_are_written_behind() throws Exception {
+        mvc.perform(post("/api/user/create").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD
+                        + "\",\"confirmPassword\":\"" + PASSWORD + "\"}"));
+        String token = mvc.perform(post("/login")
+                .content("{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .andReturn().getResponse().getHeader("Authorization");
+        long cartId = userRepository.findByUsername(USERNAME).getCart().getId();
+
+        for (int quantity = 1; quantity <= 3; quantity++) {
+            assertEquals(200, modify(token, "/api/cart/addToCart", quantity));
+        }
+        assertTrue(stored(cartId).getLines().isEmpty());
+
+        store.flush();
+        assertEquals(6, stored(cartId).getQuantity(1L));
+
+        assertEquals(200, modify(token, "/api/cart/removeFromCart", 6));
+        store.flush();
+        assertTrue(stored(cartId).getLines().isEmpty());
+
+        store.evictIdle();
+        assertEquals(0, store.size());
+        assertEquals(200, modify(token, "/api/cart/addToCart", 2));
+        store.flush();
+        assertEquals(2, stored(cartId).getQuantity(1L));
+    }
+
+    private int modify(String token, String url, int quantity) throws Exception {
+        return mvc.perform(post(url).header("Authorization", token).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + USERNAME + "\",\"itemId\":1,\"quantity\":" + quantity + "}"))
+                .andReturn().getResponse().getStatus();
+    }
+
+    private Cart stored(long cartId) {
+        return cartRepository.findWithLinesById(cartId).get();
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.demo.cart;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.requests.CartItemDelta;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CartUpdaterTest {
+    private static final long CART_ID = 1L;
+
+    private CartRepository cartRepo = mock(CartRepository.class);
+
+    private CartUpdater cartUpdater;
+
+    private Item item;
+
+    /** The cart as committed; every transaction reads a copy of it, as from the database. */
+    private AtomicReference<Cart> stored = new AtomicReference<>();
+
+    private CountDownLatch reading = new CountDownLatch(1);
+
+    private CountDownLatch proceed = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        item = new Item();
+        item.setId(1L);
+        item.setPrice(BigDecimal.valueOf(2.99));
+        Cart cart = new Cart();
+        cart.setId(CART_ID);
+        cart.addItem(item, 1);
+        stored.set(cart);
+
+        // The first transaction waits until the test lets it go on
+        AtomicBoolean first = new AtomicBoolean(true);
+        when(cartRepo.findWithLinesById(CART_ID)).thenAnswer(invocation -> {
+            if (first.getAndSet(false)) {
+                reading.countDown();
+                proceed.await(10, TimeUnit.SECONDS);
+            }
+            return Optional.of(stored.get().copy());
+        });
+        when(cartRepo.save(any(Cart.class))).thenAnswer(invocation -> {
+            stored.set(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        cartUpdater = new CartUpdater(cartRepo, mock(EntityManager.class), mock(PlatformTransactionManager.class), 3);
+    }
+
+    @Test
+    public void failing_update_does_not_fail_the_others_in_its_batch() throws Exception {
+        Outcome writer = new Outcome(Collections.singletonMap(1L, item), 1);
+        writer.start();
+        assertTrue(reading.await(10, TimeUnit.SECONDS));
+
+        // Both queue up behind the write in progress and are then written together
+        Outcome good = new Outcome(Collections.singletonMap(1L, item), 2);
+        good.startAndWaitForLock();
+        Outcome bad = new Outcome(Collections.emptyMap(), 3);
+        bad.startAndWaitForLock();
+        proceed.countDown();
+        writer.join(10_000);
+        good.join(10_000);
+        bad.join(10_000);
+
+        assertEquals(2, writer.cart.getQuantity(1L));
+        assertEquals(4, good.cart.getQuantity(1L));
+        assertNull(bad.cart);
+        assertTrue(bad.failure instanceof NullPointerException);
+        assertEquals(4, stored.get().getQuantity(1L));
+        assertEquals(0, new BigDecimal("11.96").compareTo(stored.get().getTotal()));
+        assertEquals(2, cartUpdater.getBatchCount());
+        verify(cartRepo, times(2)).save(any(Cart.class));
+    }
+
+    @Test
+    public void each_caller_gets_its_own_detached_cart() throws Exception {
+        Outcome writer = new Outcome(Collections.singletonMap(1L, item), 1);
+        writer.start();
+        assertTrue(reading.await(10, TimeUnit.SECONDS));
+
+        Outcome first = new Outcome(Collections.singletonMap(1L, item), 2);
+        first.startAndWaitForLock();
+        Outcome second = new Outcome(Collections.singletonMap(1L, item), -1);
+        second.startAndWaitForLock();
+        proceed.countDown();
+        writer.join(10_000);
+        first.join(10_000);
+        second.join(10_000);
+
+        // Each sees the cart as its own deltas left it, not the copy that was saved
+        assertEquals(4, first.cart.getQuantity(1L));
+        assertEquals(3, second.cart.getQuantity(1L));
+        assertNotSame(stored.get(), first.cart);
+        assertNotSame(stored.get(), second.cart);
+        assertNotSame(first.cart, second.cart);
+        assertEquals(2, cartUpdater.getBatchCount());
+    }
+
+    /**
+     * One caller applying a single delta on its own thread.
+     */
+    private class Outcome extends Thread {
+        private final Map<Long, Item> items;
+        private final int quantity;
+        private volatile Cart cart;
+        private volatile RuntimeException failure;
+
+        private Outcome(Map<Long, Item> items, int quantity) {
+            this.items = items;
+            this.quantity = quantity;
+        }
+
+        @Override
+        public void run() {
+            try {
+                cart = cartUpdater.apply(CART_ID, items, Collections.singletonList(new CartItemDelta(1L, quantity)));
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Starts the caller and waits until it queued its update and blocks on the
+         * combiner's lock.
+         */
+        private void startAndWaitForLock() throws InterruptedException {
+            start();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (getState() != State.WAITING && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(State.WAITING, getState());
+        }
+    }
+}
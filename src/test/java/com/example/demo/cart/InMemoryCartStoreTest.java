@@ -0,0 +1,206 @@
+package com.example.demo.cart;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.requests.CartItemDelta;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class InMemoryCartStoreTest {
+    private static final long CART_ID = 1L;
+
+    private CartRepository cartRepo = mock(CartRepository.class);
+
+    private Cart stored;
+
+    private Item item;
+
+    @Before
+    public void setUp() {
+        item = new Item();
+        item.setId(1L);
+        item.setPrice(BigDecimal.valueOf(2.99));
+        stored = new Cart();
+        stored.setId(CART_ID);
+        stored.addItem(item, 1);
+        when(cartRepo.findWithLinesById(CART_ID)).thenReturn(Optional.of(stored));
+    }
+
+    @Test
+    public void changes_are_coalesced_into_one_write() {
+        InMemoryCartStore store = store(Duration.ofMinutes(10));
+
+        for (int i = 0; i < 5; i++) {
+            Cart cart = add(store, 2);
+            assertEquals(1 + 2 * (i + 1), cart.getQuantity(1L));
+        }
+        add(store, -3);
+        verify(cartRepo, times(1)).findWithLinesById(CART_ID);
+        verify(cartRepo, never()).save(any());
+        assertEquals(1, stored.getQuantity(1L));
+
+        store.flush();
+        store.flush();
+        verify(cartRepo, times(1)).save(stored);
+        assertEquals(1, store.getFlushCount());
+        assertEquals(8, stored.getQuantity(1L));
+        assertEquals(0, BigDecimal.valueOf(23.92).compareTo(stored.getTotal()));
+    }
+
+    @Test
+    public void new_line_is_written_with_the_price_it_was_added_at() {
+        InMemoryCartStore store = store(Duration.ofMinutes(10));
+        Item other = new Item();
+        other.setId(2L);
+        other.setPrice(BigDecimal.valueOf(1.00));
+        store.apply(CART_ID, Collections.singletonMap(2L, other),
+                Collections.singletonList(new CartItemDelta(2L, 3)));
+
+        // The price changes before the cart is written back
+        other.setPrice(BigDecimal.valueOf(5.00));
+        store.flush();
+
+        assertEquals(3, stored.getQuantity(2L));
+        assertEquals(100L, stored.getLines().get(1).getUnitPriceCents());
+        assertEquals(0, new BigDecimal("5.99").compareTo(stored.getTotal()));
+    }
+
+    @Test
+    public void emptied_line_is_removed_on_flush() {
+        InMemoryCartStore store = store(Duration.ofMinutes(10));
+        add(store, -1);
+        store.flush();
+
+        assertTrue(stored.getLines().isEmpty());
+        assertEquals(0, BigDecimal.ZERO.compareTo(stored.getTotal()));
+    }
+
+    @Test
+    public void idle_carts_are_evicted_only_once_written() {
+        InMemoryCartStore store = store(Duration.ZERO);
+        add(store, 1);
+
+        store.evictIdle();
+        assertEquals(1, store.size());
+
+        store.flush();
+        store.evictIdle();
+        assertEquals(0, store.size());
+
+        // Read back from the database on the next use
+        assertEquals(2, store.find(CART_ID).get().getQuantity(1L));
+        verify(cartRepo, times(3)).findWithLinesById(CART_ID);
+    }
+
+    @Test
+    public void failed_write_is_retried() {
+        InMemoryCartStore store = store(Duration.ofMinutes(10));
+        add(store, 1);
+        when(cartRepo.save(any(Cart.class))).thenThrow(new IllegalStateException("database down")).thenReturn(stored);
+
+        store.flush();
+        assertEquals(0, store.getFlushCount());
+        store.flush();
+        assertEquals(1, store.getFlushCount());
+        verify(cartRepo, times(2)).save(stored);
+    }
+
+    @Test
+    public void shutdown_writes_dirty_carts() throws InterruptedException {
+        InMemoryCartStore store = store(Duration.ofMinutes(10));
+        store.start();
+        add(store, 4);
+
+        store.shutdown();
+        verify(cartRepo, times(1)).save(stored);
+        assertEquals(5, stored.getQuantity(1L));
+    }
+
+    @Test
+    public void overflowing_change_is_rejected_as_a_whole() {
+        InMemoryCartStore store = store(Duration.ofMinutes(10));
+
+        try {
+            store.apply(CART_ID, Collections.singletonMap(1L, item),
+                    Arrays.asList(new CartItemDelta(1L, 2), new CartItemDelta(1L, Integer.MAX_VALUE)));
+            fail("expected the change to be rejected");
+        } catch (CartLineOverflowException expected) {
+            // The first delta fit, but is not applied either
+        }
+        assertEquals(1, store.find(CART_ID).get().getQuantity(1L));
+        store.flush();
+        verify(cartRepo, never()).save(any());
+    }
+
+    @Test
+    public void exact_removal_of_missing_units_changes_nothing() {
+        InMemoryCartStore store = store(Duration.ofMinutes(10));
+        add(store, 2);
+
+        try {
+            store.applyExactly(CART_ID, Collections.singletonMap(1L, item),
+                    Collections.singletonList(new CartItemDelta(1L, -4)));
+            fail("expected the removal to be rejected");
+        } catch (OptimisticLockingFailureException expected) {
+            // Only 3 units are in the cart
+        }
+        assertEquals(3, store.find(CART_ID).get().getQuantity(1L));
+
+        Cart cart = store.applyExactly(CART_ID, Collections.singletonMap(1L, item),
+                Collections.singletonList(new CartItemDelta(1L, -3)));
+        assertTrue(cart.getLines().isEmpty());
+    }
+
+    @Test
+    public void handed_out_carts_are_shared_and_never_change() {
+        InMemoryCartStore store = store(Duration.ofMinutes(10));
+        Cart before = store.find(CART_ID).get();
+        assertNotSame(stored, before);
+        assertSame(before, store.find(CART_ID).get());
+
+        Cart after = add(store, 2);
+
+        // The change went into a new cart; the one handed out earlier is as it was
+        assertNotSame(before, after);
+        assertEquals(1, before.getQuantity(1L));
+        assertEquals(1, before.getOrderLines().get(0).getQuantity());
+        assertSame(after, store.find(CART_ID).get());
+        assertEquals(3, after.getOrderLines().get(0).getQuantity());
+    }
+
+    @Test
+    public void unknown_cart_is_not_found() {
+        InMemoryCartStore store = store(Duration.ofMinutes(10));
+
+        assertFalse(store.find(2L).isPresent());
+        assertNull(store.apply(2L, Collections.singletonMap(1L, item),
+                Collections.singletonList(new CartItemDelta(1L, 1))));
+        assertEquals(0, store.size());
+    }
+
+    private InMemoryCartStore store(Duration idleTimeout) {
+        return new InMemoryCartStore(cartRepo, mock(PlatformTransactionManager.class), Duration.ofHours(1), idleTimeout);
+    }
+
+    private Cart add(InMemoryCartStore store, int quantity) {
+        return store.apply(CART_ID, Collections.singletonMap(1L, item),
+                Collections.singletonList(new CartItemDelta(1L, quantity)));
+    }
+}
@@ -1,25 +1,37 @@
 package com.example.demo.controllers;
 
 import com.example.demo.TestUtils;
+import com.example.demo.cache.UserCache;
+import com.example.demo.cart.CartUpdater;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.BulkModifyCartRequest;
+import com.example.demo.model.requests.CartItemDelta;
 import com.example.demo.model.requests.ModifyCartRequest;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import javax.persistence.EntityManager;
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.*;
 
 public class CartControllerTest {
     private static final Long   USER_ID  = 0L;
+    private static final Long   CART_ID  = 1L;
     private static final String USERNAME = "test";
     private static final String PASSWORD = "testPassword";
     private CartController cartController;
@@ -33,14 +45,15 @@ public class CartControllerTest {
     @Before
     public void setUp() {
         cartController = new CartController();
-        TestUtils.injectObject(cartController, "cartRepository", cartRepo);
-        TestUtils.injectObject(cartController, "userRepository", userRepo);
+        TestUtils.injectObject(cartController, "cartEngine",
+                new CartUpdater(cartRepo, mock(EntityManager.class), mock(PlatformTransactionManager.class), 3));
+        TestUtils.injectObject(cartController, "userCache", new UserCache(userRepo));
         TestUtils.injectObject(cartController, "itemRepository", itemRepo);
     }
 
     @Test
     public void add_to_cart_success() {
-        when(userRepo.findByUsername(USERNAME)).thenReturn(createMockUser());
+        mockUserLookup(createMockUser());
         when(itemRepo.findById(1L)).thenReturn(Optional.of(createMockItem()));
 
         final ResponseEntity<Cart> response = cartController.addTocart(createMockCartRequestForAdding());
@@ -56,6 +69,55 @@ public class CartControllerTest {
         assertEquals(BigDecimal.valueOf(2.99 + 2.99), cart.getTotal());
     }
 
+    @Test
+    public void add_to_cart_merges_quantity_into_one_line() {
+        mockUserLookup(createMockUser());
+        when(itemRepo.findById(1L)).thenReturn(Optional.of(createMockItem()));
+
+        ModifyCartRequest request = createMockCartRequestForAdding();
+        request.setQuantity(10_000);
+        cartController.addTocart(request);
+        final ResponseEntity<Cart> response = cartController.addTocart(request);
+
+        // Test response body
+        Cart cart = response.getBody();
+        assertEquals(1, cart.getLines().size());
+        assertEquals(20_000, cart.getLines().get(0).getQuantity());
+        assertEquals(20_000, cart.getItems().size());
+        assertEquals(0, new BigDecimal("59800.00").compareTo(cart.getTotal()));
+    }
+
+    @Test
+    public void add_to_cart_fail_by_zero_or_negative_quantity() {
+        mockUserLookup(createMockUserWithCart());
+        when(itemRepo.findById(1L)).thenReturn(Optional.of(createMockItem()));
+
+        for (int quantity : new int[] {0, -1, Integer.MIN_VALUE}) {
+            ModifyCartRequest request = createMockCartRequestForAdding();
+            request.setQuantity(quantity);
+            final ResponseEntity<Cart> response = cartController.addTocart(request);
+
+            // Test response
+            assertNotNull(response);
+            assertEquals(400, response.getStatusCodeValue());
+        }
+        verify(cartRepo, never()).save(any());
+    }
+
+    @Test
+    public void add_to_cart_fail_by_quantity_overflow() {
+        mockUserLookup(createMockUserWithCart());
+        when(itemRepo.findById(1L)).thenReturn(Optional.of(createMockItem()));
+
+        ModifyCartRequest request = createMockCartRequestForAdding();
+        request.setQuantity(Integer.MAX_VALUE - 1);
+        final ResponseEntity<Cart> response = cartController.addTocart(request);
+
+        // Test response
+        assertEquals(400, response.getStatusCodeValue());
+        verify(cartRepo, never()).save(any());
+    }
+
     @Test
     public void add_to_cart_fail_by_invalid_user() {
         when(userRepo.findByUsername(USERNAME)).thenReturn(null);
@@ -69,7 +131,7 @@ public class CartControllerTest {
 
     @Test
     public void add_to_cart_fail_by_invalid_item() {
-        when(userRepo.findByUsername(USERNAME)).thenReturn(createMockUser());
+        mockUserLookup(createMockUser());
         when(itemRepo.findById(1L)).thenReturn(Optional.ofNullable(null));
 
         final ResponseEntity<Cart> response = cartController.addTocart(createMockCartRequestForAdding());
@@ -80,8 +142,40 @@ public class CartControllerTest {
     }
 
     @Test
-    public void remove_from_cart_success() {
+    public void add_to_cart_reapplies_delta_after_version_conflict() {
         when(userRepo.findByUsername(USERNAME)).thenReturn(createMockUserWithCart());
+        // Every attempt reads the cart afresh, as a new transaction would
+        when(cartRepo.findWithLinesById(CART_ID)).thenAnswer(invocation -> Optional.of(createMockUserWithCart().getCart()));
+        when(cartRepo.save(any(Cart.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Cart.class, CART_ID))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(itemRepo.findById(1L)).thenReturn(Optional.of(createMockItem()));
+
+        final ResponseEntity<Cart> response = cartController.addTocart(createMockCartRequestForAdding());
+
+        // Test response body holds the delta applied once
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(4, response.getBody().getQuantity(1L));
+        assertEquals(0, new BigDecimal("11.96").compareTo(response.getBody().getTotal()));
+        verify(cartRepo, times(2)).findWithLinesById(CART_ID);
+    }
+
+    @Test
+    public void add_to_cart_conflict_when_retries_run_out() {
+        mockUserLookup(createMockUser());
+        when(cartRepo.save(any(Cart.class))).thenThrow(new ObjectOptimisticLockingFailureException(Cart.class, CART_ID));
+        when(itemRepo.findById(1L)).thenReturn(Optional.of(createMockItem()));
+
+        final ResponseEntity<Cart> response = cartController.addTocart(createMockCartRequestForAdding());
+
+        // Test response
+        assertEquals(409, response.getStatusCodeValue());
+        verify(cartRepo, times(3)).save(any(Cart.class));
+    }
+
+    @Test
+    public void remove_from_cart_success() {
+        mockUserLookup(createMockUserWithCart());
         when(itemRepo.findById(1L)).thenReturn(Optional.of(createMockItem()));
 
         // Test remove one item response
@@ -106,6 +200,25 @@ public class CartControllerTest {
         assertEquals(0, cart.getTotal().intValue());
     }
 
+    @Test
+    public void remove_from_cart_item_not_in_cart() {
+        mockUserLookup(createMockUserWithCart());
+        Item other = createMockItem();
+        other.setId(2L);
+        when(itemRepo.findById(2L)).thenReturn(Optional.of(other));
+
+        ModifyCartRequest request = createMockCartRequestForRemoving();
+        request.setItemId(2L);
+        final ResponseEntity<Cart> response = cartController.removeFromcart(request);
+
+        // Test response body is unchanged
+        assertEquals(200, response.getStatusCodeValue());
+        Cart cart = response.getBody();
+        assertFalse(cart.containsItem(2L));
+        assertEquals(2, cart.getQuantity(1L));
+        assertEquals(BigDecimal.valueOf(2.99 + 2.99), cart.getTotal());
+    }
+
     @Test
     public void remove_from_cart_invalid_user() {
         when(userRepo.findByUsername(USERNAME)).thenReturn(null);
@@ -117,9 +230,26 @@ public class CartControllerTest {
         assertEquals(404, response.getStatusCodeValue());
     }
 
+    @Test
+    public void remove_from_cart_fail_by_zero_or_negative_quantity() {
+        mockUserLookup(createMockUserWithCart());
+        when(itemRepo.findById(1L)).thenReturn(Optional.of(createMockItem()));
+
+        for (int quantity : new int[] {0, -1, Integer.MIN_VALUE}) {
+            ModifyCartRequest request = createMockCartRequestForRemoving();
+            request.setQuantity(quantity);
+            final ResponseEntity<Cart> response = cartController.removeFromcart(request);
+
+            // Test response
+            assertNotNull(response);
+            assertEquals(400, response.getStatusCodeValue());
+        }
+        verify(cartRepo, never()).save(any());
+    }
+
     @Test
     public void remove_from_cart_invalid_item() {
-        when(userRepo.findByUsername(USERNAME)).thenReturn(createMockUser());
+        mockUserLookup(createMockUser());
         when(itemRepo.findById(1L)).thenReturn(Optional.ofNullable(null));
 
         final ResponseEntity<Cart> response = cartController.removeFromcart(createMockCartRequestForRemoving());
@@ -130,6 +260,114 @@ public class CartControllerTest {
     }
 
 
+    @Test
+    public void modify_cart_applies_all_deltas_with_one_save() {
+        mockUserLookup(createMockUserWithCart());
+        Item other = createMockItem();
+        other.setId(2L);
+        other.setPrice(BigDecimal.valueOf(1.50));
+        when(itemRepo.findAllById(anyCollection())).thenReturn(Arrays.asList(createMockItem(), other));
+
+        final ResponseEntity<Cart> response = cartController.modifyCart(createMockBulkRequest(
+                new CartItemDelta(1L, -1), new CartItemDelta(2L, 3), new CartItemDelta(1L, 2)));
+
+        // Test response
+        assertNotNull(response);
+        assertEquals(200, response.getStatusCodeValue());
+        // Test response body
+        Cart cart = response.getBody();
+        assertEquals(3, cart.getQuantity(1L));
+        assertEquals(3, cart.getQuantity(2L));
+        assertEquals(0, new BigDecimal("13.47").compareTo(cart.getTotal()));
+        verify(itemRepo, times(1)).findAllById(anyCollection());
+        verify(cartRepo, times(1)).save(any(Cart.class));
+    }
+
+    @Test
+    public void modify_cart_applies_deltas_in_order() {
+        mockUserLookup(createMockUser());
+        when(itemRepo.findAllById(anyCollection())).thenReturn(Collections.singletonList(createMockItem()));
+
+        // Removing from an empty line changes nothing, so the later add still counts
+        final ResponseEntity<Cart> response = cartController.modifyCart(createMockBulkRequest(
+                new CartItemDelta(1L, -3), new CartItemDelta(1L, 3)));
+
+        // Test response
+        assertEquals(200, response.getStatusCodeValue());
+        // Test response body
+        Cart cart = response.getBody();
+        assertEquals(3, cart.getQuantity(1L));
+        assertEquals(0, new BigDecimal("8.97").compareTo(cart.getTotal()));
+    }
+
+    @Test
+    public void modify_cart_fail_by_zero_quantity() {
+        mockUserLookup(createMockUserWithCart());
+
+        final ResponseEntity<Cart> response = cartController.modifyCart(createMockBulkRequest(
+                new CartItemDelta(1L, 1), new CartItemDelta(1L, 0)));
+
+        // Test response
+        assertNotNull(response);
+        assertEquals(400, response.getStatusCodeValue());
+        verify(itemRepo, never()).findAllById(anyCollection());
+        verify(cartRepo, never()).save(any());
+    }
+
+    @Test
+    public void modify_cart_fail_by_quantity_overflow_leaves_cart_unchanged() {
+        User user = createMockUserWithCart();
+        mockUserLookup(user);
+        when(itemRepo.findAllById(anyCollection())).thenReturn(Collections.singletonList(createMockItem()));
+
+        // Only the third delta overflows, after the first two would have fit
+        final ResponseEntity<Cart> response = cartController.modifyCart(createMockBulkRequest(
+                new CartItemDelta(1L, -2), new CartItemDelta(1L, Integer.MAX_VALUE), new CartItemDelta(1L, 1)));
+
+        // Test response
+        assertEquals(400, response.getStatusCodeValue());
+        verify(cartRepo, never()).save(any());
+        assertEquals(2, user.getCart().getQuantity(1L));
+    }
+
+    @Test
+    public void modify_cart_fail_by_invalid_item() {
+        mockUserLookup(createMockUserWithCart());
+        when(itemRepo.findAllById(anyCollection())).thenReturn(Collections.singletonList(createMockItem()));
+
+        final ResponseEntity<Cart> response = cartController.modifyCart(createMockBulkRequest(
+                new CartItemDelta(1L, 1), new CartItemDelta(2L, 1)));
+
+        // Test response
+        assertNotNull(response);
+        assertEquals(404, response.getStatusCodeValue());
+        verify(cartRepo, never()).save(any());
+    }
+
+    @Test
+    public void modify_cart_fail_by_invalid_user() {
+        when(userRepo.findByUsername(USERNAME)).thenReturn(null);
+
+        final ResponseEntity<Cart> response = cartController.modifyCart(createMockBulkRequest(new CartItemDelta(1L, 1)));
+
+        // Test response
+        assertNotNull(response);
+        assertEquals(404, response.getStatusCodeValue());
+    }
+
+    private void mockUserLookup(User user) {
+        when(userRepo.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepo.findWithLinesById(CART_ID)).thenReturn(Optional.of(user.getCart()));
+    }
+
+    private BulkModifyCartRequest createMockBulkRequest(CartItemDelta... deltas) {
+        BulkModifyCartRequest r = new BulkModifyCartRequest();
+        r.setUsername(USERNAME);
+        r.setItems(Arrays.asList(deltas));
+
+        return r;
+    }
+
     private ModifyCartRequest createMockCartRequestForAdding() {
         ModifyCartRequest r = new ModifyCartRequest();
         r.setItemId(1L);
@@ -155,6 +393,7 @@ public class CartControllerTest {
         user.setPassword(PASSWORD);
 
         Cart cart = new Cart();
+        cart.setId(CART_ID);
         cart.setUser(user);
         user.setCart(cart);
 
@@ -178,6 +417,7 @@ public class CartControllerTest {
         user.setPassword(PASSWORD);
 
         Cart cart = new Cart();
+        cart.setId(CART_ID);
         cart.setUser(user);
         cart.addItem(createMockItem());
         cart.addItem(createMockItem());
@@ -1,20 +1,30 @@
 package com.example.demo.controllers;
 
 import com.example.demo.TestUtils;
+import com.example.demo.cache.ItemCatalog;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.responses.ItemPage;
+import com.example.demo.search.ItemSearchIndex;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 
+import javax.persistence.EntityManager;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ItemControllerTest {
@@ -27,10 +37,20 @@ public class ItemControllerTest {
 
     private ItemRepository itemRepo = mock(ItemRepository.class);
 
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    private EntityManager entityManager = mock(EntityManager.class);
+
+    private ItemSearchIndex itemSearchIndex = new ItemSearchIndex(itemRepo);
+
     @Before
     public void setup() {
         itemController = new ItemController();
         TestUtils.injectObject(itemController, "itemRepository", itemRepo);
+        TestUtils.injectObject(itemController, "itemCatalog", new ItemCatalog(itemRepo, objectMapper));
+        TestUtils.injectObject(itemController, "itemSearchIndex", itemSearchIndex);
+        TestUtils.injectObject(itemController, "objectMapper", objectMapper);
+        TestUtils.injectObject(itemController, "entityManager", entityManager);
     }
 
     @Test
@@ -38,26 +58,136 @@ public class ItemControllerTest {
         when(itemRepo.findAll()).thenReturn(createMockItemList());
 
         // Test response
-        final ResponseEntity<List<Item>> response = itemController.getItems();
+        final ResponseEntity<byte[]> response = itemController.getItems(null);
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
         // Test response body
-        assertFalse(response.getBody().isEmpty());
-        assertEquals(2, response.getBody().size());
+        List<Item> items = objectMapper.readValue(response.getBody(), new TypeReference<List<Item>>() {});
+        assertFalse(items.isEmpty());
+        assertEquals(2, items.size());
+    }
+
+    @Test
+    public void get_items_not_modified() throws Exception {
+        when(itemRepo.findAll()).thenReturn(createMockItemList());
+
+        final ResponseEntity<byte[]> first = itemController.getItems(null);
+        final ResponseEntity<byte[]> second = itemController.getItems(first.getHeaders().getETag());
+
+        // Test response
+        assertEquals(304, second.getStatusCodeValue());
+        assertNull(second.getBody());
+        assertEquals(first.getHeaders().getETag(), second.getHeaders().getETag());
+        // The catalog is loaded once and served from memory afterwards
+        verify(itemRepo, times(1)).findAll();
     }
 
     @Test
     public void get_item_by_id() throws Exception {
-        when(itemRepo.findById(ITEM_ID)).thenReturn(Optional.of(createMockItem()));
+        when(itemRepo.findAll()).thenReturn(Collections.singletonList(createMockItem()));
 
         // Test response
-        final ResponseEntity<Item> response = itemController.getItemById(ITEM_ID);
+        final ResponseEntity<byte[]> response = itemController.getItemById(ITEM_ID, null);
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
         // Test response body
-        assertEquals(ITEM_NAME, response.getBody().getName());
-        assertEquals(BigDecimal.valueOf(ITEM_PRICE), response.getBody().getPrice());
-        assertEquals(ITEM_DESC, response.getBody().getDescription());
+        Item item = objectMapper.readValue(response.getBody(), Item.class);
+        assertEquals(ITEM_NAME, item.getName());
+        assertEquals(BigDecimal.valueOf(ITEM_PRICE), item.getPrice());
+        assertEquals(ITEM_DESC, item.getDescription());
+    }
+
+    @Test
+    public void get_item_by_invalid_id() throws Exception {
+        when(itemRepo.findAll()).thenReturn(createMockItemList());
+
+        final ResponseEntity<byte[]> response = itemController.getItemById(99L, null);
+        assertNotNull(response);
+        assertEquals(404, response.getStatusCodeValue());
+    }
+
+    @Test
+    public void get_item_page() {
+        when(itemRepo.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 2))).thenReturn(createMockItemList());
+        when(itemRepo.findByIdGreaterThanOrderByIdAsc(2L, PageRequest.of(0, 2))).thenReturn(Collections.emptyList());
+
+        // Test full page response
+        final ResponseEntity<ItemPage> first = itemController.getItemPage(0L, 2);
+        assertEquals(200, first.getStatusCodeValue());
+        assertEquals(2, first.getBody().getItems().size());
+        assertEquals(Long.valueOf(2L), first.getBody().getNextCursor());
+
+        // Test last page response
+        final ResponseEntity<ItemPage> second = itemController.getItemPage(first.getBody().getNextCursor(), 2);
+        assertEquals(200, second.getStatusCodeValue());
+        assertTrue(second.getBody().getItems().isEmpty());
+        assertNull(second.getBody().getNextCursor());
+    }
+
+    @Test
+    public void get_item_page_rejects_oversized_page() {
+        final ResponseEntity<ItemPage> response = itemController.getItemPage(0L, 100_000);
+
+        assertEquals(400, response.getStatusCodeValue());
+    }
+
+    @Test
+    public void stream_items() throws Exception {
+        List<Item> items = createMockItemList();
+        when(itemRepo.streamAllOrderById()).thenReturn(items.stream());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        itemController.streamItems(response);
+
+        // Test one JSON document per line
+        String[] lines = response.getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("Item One", objectMapper.readValue(lines[0], Item.class).getName());
+        assertEquals("Item Two", objectMapper.readValue(lines[1], Item.class).getName());
+        verify(entityManager).detach(items.get(0));
+        verify(entityManager).detach(items.get(1));
+    }
+
+    @Test
+    public void search_items_by_prefix_ranks_name_matches_first() {
+        List<Item> items = createMockItemList();
+        Item widget = createMockItem();
+        widget.setId(3L);
+        Item gadget = createMockItem();
+        gadget.setId(4L);
+        gadget.setName("Gadget");
+        gadget.setDescription("Works with any round widget");
+        items.add(widget);
+        items.add(gadget);
+        when(itemRepo.findAll()).thenReturn(items);
+        itemSearchIndex.rebuild();
+
+        // Test typeahead prefix matching
+        final ResponseEntity<List<Item>> response = itemController.searchItems("wid", null);
+        assertEquals(200, response.getStatusCodeValue());
+        List<Item> found = response.getBody();
+        assertEquals(2, found.size());
+        assertEquals(ITEM_NAME, found.get(0).getName());
+        assertEquals("Gadget", found.get(1).getName());
+
+        // Test every term has to match
+        assertEquals(1, itemController.searchItems("round gadg", null).getBody().size());
+        assertTrue(itemController.searchItems("square", null).getBody().isEmpty());
+    }
+
+    @Test
+    public void search_items_follows_index_updates() {
+        when(itemRepo.findAll()).thenReturn(createMockItemList());
+        itemSearchIndex.rebuild();
+
+        Item renamed = createMockItemList().get(0);
+        renamed.setName("Renamed Widget");
+        itemSearchIndex.index(renamed);
+        itemSearchIndex.remove(2L);
+
+        assertEquals(1, itemController.searchItems("renamed widget", null).getBody().size());
+        assertTrue(itemController.searchItems("two", null).getBody().isEmpty());
+        assertEquals(1, itemController.searchItems("item", null).getBody().size());
     }
 
     @Test
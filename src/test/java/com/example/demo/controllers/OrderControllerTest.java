@@ -1,28 +1,58 @@
 package com.example.demo.controllers;
 
 import com.example.demo.TestUtils;
+import com.example.demo.cache.UserCache;
+import com.example.demo.cart.CartUpdater;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.OrderLine;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.OrderRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderHistoryPage;
+import com.example.demo.model.responses.OrderSubmissionStatus;
+import com.example.demo.model.responses.OrderSummary;
+import com.example.demo.orders.OrderSubmissionService;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import javax.persistence.EntityManager;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class OrderControllerTest {
     private static final String USERNAME = "test";
     private static final String PASSWORD = "testPassword";
     private static final Long   USER_ID  = 0L;
+    private static final Long   CART_ID  = 1L;
 
     private OrderController orderController;
 
@@ -30,16 +60,35 @@ public class OrderControllerTest {
 
     private OrderRepository orderRepo = mock(OrderRepository.class);
 
+    private CartRepository cartRepo = mock(CartRepository.class);
+
+    private OrderSubmissionService submissionService;
+
     @Before
     public void setUp() {
+        CartUpdater cartEngine = new CartUpdater(cartRepo, mock(EntityManager.class),
+                mock(PlatformTransactionManager.class), 3);
+        submissionService = new OrderSubmissionService(orderRepo, userRepo, cartEngine,
+                mock(PlatformTransactionManager.class), 1, 10, 10, Duration.ofMinutes(1));
+        submissionService.start();
+
         orderController = new OrderController();
-        TestUtils.injectObject(orderController, "userRepository", userRepo);
+        TestUtils.injectObject(orderController, "userCache", new UserCache(userRepo));
         TestUtils.injectObject(orderController, "orderRepository", orderRepo);
+        TestUtils.injectObject(orderController, "orderSubmissionService", submissionService);
+        TestUtils.injectObject(orderController, "cartEngine", cartEngine);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        submissionService.shutdown();
     }
 
     @Test
     public void submit_order_success() {
-        when(userRepo.findByUsername(USERNAME)).thenReturn(createMockUser());
+        User user = createMockUser();
+        when(userRepo.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepo.findWithLinesById(CART_ID)).thenReturn(Optional.of(user.getCart()));
 
         final ResponseEntity<UserOrder> response = orderController.submit(USERNAME);
 
@@ -51,6 +100,7 @@ public class OrderControllerTest {
         assertFalse(order.getItems().isEmpty());
         assertEquals(USERNAME, order.getUser().getUsername());
         assertEquals("Item One", order.getItems().get(0).getName());
+        assertEquals("Item One", order.getLines().get(0).getName());
         assertEquals(BigDecimal.valueOf(2.99), order.getTotal());
     }
 
@@ -65,13 +115,165 @@ public class OrderControllerTest {
         assertEquals(404, response.getStatusCodeValue());
     }
 
+    @Test
+    public void submit_order_async_success() throws InterruptedException {
+        User user = createMockUser();
+        when(userRepo.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepo.findWithLinesById(CART_ID)).thenReturn(Optional.of(user.getCart()));
+        when(orderRepo.saveAll(anyList())).thenAnswer(invocation -> {
+            List<UserOrder> orders = invocation.getArgument(0);
+            orders.forEach(order -> order.setId(42L));
+            return orders;
+        });
+
+        final ResponseEntity<OrderSubmissionStatus> response = orderController.submitAsync(USERNAME, "key-1");
+
+        // Test response status
+        assertEquals(202, response.getStatusCodeValue());
+        assertFalse(response.getBody().isReplayed());
+        // Test the cart is emptied once the order is queued
+        assertTrue(user.getCart().getLines().isEmpty());
+        verify(cartRepo).save(user.getCart());
+
+        // Test the submission completes in the background
+        String submissionId = response.getBody().getSubmissionId();
+        OrderSubmissionStatus status = awaitCompletion(submissionId);
+        assertEquals(OrderSubmissionStatus.State.COMPLETED, status.getState());
+        assertEquals(Long.valueOf(42L), status.getOrderId());
+    }
+
+    @Test
+    public void submit_order_async_replays_idempotency_key() throws InterruptedException {
+        User user = createMockUser();
+        when(userRepo.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepo.findWithLinesById(CART_ID)).thenReturn(Optional.of(user.getCart()));
+        when(orderRepo.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        final ResponseEntity<OrderSubmissionStatus> first = orderController.submitAsync(USERNAME, "key-1");
+        final ResponseEntity<OrderSubmissionStatus> retry = orderController.submitAsync(USERNAME, "key-1");
+
+        // Test the retry answers with the original submission even though the cart is now empty
+        assertEquals(202, retry.getStatusCodeValue());
+        assertTrue(retry.getBody().isReplayed());
+        assertEquals(first.getBody().getSubmissionId(), retry.getBody().getSubmissionId());
+
+        awaitCompletion(first.getBody().getSubmissionId());
+        verify(orderRepo, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    public void concurrent_submits_of_one_cart_create_one_order() throws Exception {
+        User user = createMockUser();
+        when(userRepo.findByUsername(USERNAME)).thenReturn(user);
+        // Every read gets its own copy, as from the database; both submits read before either takes out
+        AtomicReference<Cart> stored = new AtomicReference<>(user.getCart());
+        AtomicInteger reads = new AtomicInteger();
+        CyclicBarrier bothRead = new CyclicBarrier(2);
+        when(cartRepo.findWithLinesById(CART_ID)).thenAnswer(invocation -> {
+            Cart cart = stored.get().copy();
+            if (reads.incrementAndGet() <= 2) {
+                bothRead.await(10, TimeUnit.SECONDS);
+            }
+            return Optional.of(cart);
+        });
+        when(cartRepo.save(any(Cart.class))).thenAnswer(invocation -> {
+            stored.set(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        when(orderRepo.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Callable<ResponseEntity<OrderSubmissionStatus>> submit = () -> orderController.submitAsync(USERNAME, null);
+        Future<ResponseEntity<OrderSubmissionStatus>> first = pool.submit(submit);
+        Future<ResponseEntity<OrderSubmissionStatus>> second = pool.submit(submit);
+        List<ResponseEntity<OrderSubmissionStatus>> responses = Arrays.asList(
+                first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        // Test only one submit takes the units out, the other finds them gone
+        List<Integer> statuses = new ArrayList<>();
+        for (ResponseEntity<OrderSubmissionStatus> response : responses) {
+            statuses.add(response.getStatusCodeValue());
+        }
+        Collections.sort(statuses);
+        assertEquals(Arrays.asList(202, 409), statuses);
+        assertTrue(stored.get().getLines().isEmpty());
+
+        ResponseEntity<OrderSubmissionStatus> accepted = responses.get(0).getStatusCodeValue() == 202
+                ? responses.get(0) : responses.get(1);
+        awaitCompletion(accepted.getBody().getSubmissionId());
+        verify(orderRepo, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    public void submit_order_async_rejected_keeps_cart() throws InterruptedException {
+        User user = createMockUser();
+        when(userRepo.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepo.findWithLinesById(CART_ID)).thenReturn(Optional.of(user.getCart()));
+        submissionService.shutdown();
+
+        final ResponseEntity<OrderSubmissionStatus> response = orderController.submitAsync(USERNAME, "key-1");
+
+        // Test the units go back into the cart when the order cannot be queued
+        assertEquals(503, response.getStatusCodeValue());
+        assertEquals(1, user.getCart().getQuantity(1L));
+        assertEquals(BigDecimal.valueOf(2.99), user.getCart().getTotal());
+        assertNull(submissionService.findByIdempotencyKey(USER_ID, "key-1"));
+    }
+
+    @Test
+    public void submit_order_async_failure_returns_lines_to_cart() throws InterruptedException {
+        User user = createMockUser();
+        when(userRepo.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepo.findWithLinesById(CART_ID)).thenReturn(Optional.of(user.getCart()));
+        when(orderRepo.saveAll(anyList())).thenThrow(new IllegalStateException("database down"));
+
+        final ResponseEntity<OrderSubmissionStatus> response = orderController.submitAsync(USERNAME, null);
+        assertEquals(202, response.getStatusCodeValue());
+
+        // Test the units are back in the cart once the submission has failed
+        OrderSubmissionStatus status = awaitCompletion(response.getBody().getSubmissionId());
+        assertEquals(OrderSubmissionStatus.State.FAILED, status.getState());
+        assertEquals(1, user.getCart().getQuantity(1L));
+    }
+
+    @Test
+    public void submit_order_async_fail_empty_cart() {
+        User user = createMockUser();
+        user.getCart().clear();
+        when(userRepo.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepo.findWithLinesById(CART_ID)).thenReturn(Optional.of(user.getCart()));
+
+        final ResponseEntity<OrderSubmissionStatus> response = orderController.submitAsync(USERNAME, null);
+
+        assertEquals(400, response.getStatusCodeValue());
+    }
+
+    @Test
+    public void get_submission_status_of_other_user() {
+        User user = createMockUser();
+        when(userRepo.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepo.findWithLinesById(CART_ID)).thenReturn(Optional.of(user.getCart()));
+        String submissionId = orderController.submitAsync(USERNAME, null).getBody().getSubmissionId();
+
+        User other = createMockUserWithOrderList();
+        other.setId(USER_ID + 1);
+        other.setUsername("other");
+        when(userRepo.findByUsername("other")).thenReturn(other);
+
+        final ResponseEntity<OrderSubmissionStatus> response =
+                orderController.getSubmissionStatus("other", submissionId);
+
+        assertEquals(404, response.getStatusCodeValue());
+    }
+
     @Test
     public void get_user_order_history_success() {
         when(userRepo.findByUsername(USERNAME)).thenReturn(createMockUserWithOrderList());
 
         User user = userRepo.findByUsername(USERNAME);
 
-        when(orderRepo.findByUser(user)).thenReturn(createMockOrderList(user));
+        when(orderRepo.findByUserId(USER_ID)).thenReturn(createMockOrderList(user));
 
         final ResponseEntity<List<UserOrder>> response = orderController.getOrdersForUser(USERNAME);
 
@@ -103,6 +305,74 @@ public class OrderControllerTest {
         assertEquals(404, response.getStatusCodeValue());
     }
 
+    @Test
+    public void get_order_history_page_success() {
+        when(userRepo.findByUsername(USERNAME)).thenReturn(createMockUserWithOrderList());
+        when(orderRepo.findSummariesByUserId(USER_ID, Long.MAX_VALUE, PageRequest.of(0, 2))).thenReturn(Arrays.asList(
+                new OrderSummary(9L, 2245L, 3, Instant.now()),
+                new OrderSummary(7L, 1099L, 1, Instant.now())));
+        when(orderRepo.findSummariesByUserId(USER_ID, 7L, PageRequest.of(0, 2))).thenReturn(Collections.singletonList(
+                new OrderSummary(3L, 299L, 1, Instant.now())));
+
+        // Test first page response
+        final ResponseEntity<OrderHistoryPage> first = orderController.getOrderHistoryPage(USERNAME, null, 2);
+        assertEquals(200, first.getStatusCodeValue());
+        assertEquals(2, first.getBody().getOrders().size());
+        assertEquals(Integer.valueOf(3), first.getBody().getOrders().get(0).getItemCount());
+        assertEquals(Long.valueOf(7L), first.getBody().getNextCursor());
+
+        // Test last page response
+        final ResponseEntity<OrderHistoryPage> second =
+                orderController.getOrderHistoryPage(USERNAME, first.getBody().getNextCursor(), 2);
+        assertEquals(1, second.getBody().getOrders().size());
+        assertNull(second.getBody().getNextCursor());
+    }
+
+    @Test
+    public void get_order_history_page_invalid_username() {
+        when(userRepo.findByUsername(USERNAME)).thenReturn(null);
+
+        final ResponseEntity<OrderHistoryPage> response = orderController.getOrderHistoryPage(USERNAME, null, null);
+
+        assertEquals(404, response.getStatusCodeValue());
+    }
+
+    @Test
+    public void get_order_lines_success() {
+        User user = createMockUserWithOrderList();
+        when(userRepo.findByUsername(USERNAME)).thenReturn(user);
+        when(orderRepo.existsByIdAndUserId(5L, USER_ID)).thenReturn(true);
+        when(orderRepo.findLinesByOrderId(5L)).thenReturn(createMockOrderList(user).get(0).getLines());
+
+        final ResponseEntity<List<OrderLine>> response = orderController.getOrderLines(USERNAME, 5L);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(3, response.getBody().size());
+        assertEquals("Item3", response.getBody().get(2).getName());
+        assertEquals(BigDecimal.valueOf(12.45), response.getBody().get(2).getUnitPrice());
+    }
+
+    @Test
+    public void get_order_lines_of_other_user() {
+        when(userRepo.findByUsername(USERNAME)).thenReturn(createMockUserWithOrderList());
+        when(orderRepo.existsByIdAndUserId(5L, USER_ID)).thenReturn(false);
+
+        final ResponseEntity<List<OrderLine>> response = orderController.getOrderLines(USERNAME, 5L);
+
+        assertEquals(404, response.getStatusCodeValue());
+    }
+
+    private OrderSubmissionStatus awaitCompletion(String submissionId) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            OrderSubmissionStatus status = orderController.getSubmissionStatus(USERNAME, submissionId).getBody();
+            if (status.getState() != OrderSubmissionStatus.State.PENDING) {
+                return status;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Submission " + submissionId + " did not complete");
+    }
+
     private User createMockUser() {
         User user = new User();
         user.setId(USER_ID);
@@ -116,6 +386,7 @@ public class OrderControllerTest {
         item.setDescription("Testing item one");
 
         Cart cart = new Cart();
+        cart.setId(CART_ID);
         cart.setUser(user);
         cart.addItem(item);
 
@@ -134,41 +405,16 @@ public class OrderControllerTest {
     }
 
     private List<UserOrder> createMockOrderList(User user) {
-        Item item1 = new Item();
-        item1.setId(0L);
-        item1.setName("Item1");
-        item1.setPrice(BigDecimal.valueOf(0.50));
-
-        Item item2 = new Item();
-        item2.setId(1L);
-        item2.setName("Item2");
-        item2.setPrice(BigDecimal.valueOf(9.50));
-
-        Item item3 = new Item();
-        item3.setId(2L);
-        item3.setName("Item3");
-        item3.setPrice(BigDecimal.valueOf(12.45));
-
-        List<Item> itemList1 = new ArrayList<>();
-        itemList1.add(item1);
-        itemList1.add(item2);
-        itemList1.add(item3);
-
         UserOrder order1 = new UserOrder();
-        order1.setItems(itemList1);
+        order1.setLines(Arrays.asList(
+                new OrderLine(0L, "Item1", 50, 1),
+                new OrderLine(1L, "Item2", 950, 1),
+                new OrderLine(2L, "Item3", 1245, 1)));
         order1.setUser(user);
         order1.setTotal(BigDecimal.valueOf(22.45));
 
-        Item item4 = new Item();
-        item4.setId(3L);
-        item4.setName("Item4");
-        item4.setPrice(BigDecimal.valueOf(10.99));
-
-        List<Item> itemList2 = new ArrayList<>();
-        itemList2.add(item4);
-
         UserOrder order2 = new UserOrder();
-        order2.setItems(itemList2);
+        order2.setLines(Collections.singletonList(new OrderLine(3L, "Item4", 1099, 1)));
         order2.setUser(user);
         order2.setTotal(BigDecimal.valueOf(10.99));
 
@@ -1,19 +1,25 @@
 package com.example.demo.controllers;
 
 import com.example.demo.TestUtils;
+import com.example.demo.cache.UserCache;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.security.PasswordHashingRejectedException;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.Optional;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class UserControllerTest {
@@ -27,14 +33,15 @@ public class UserControllerTest {
 
     private CartRepository cartRepo = mock(CartRepository.class);
 
-    private BCryptPasswordEncoder encoder = mock(BCryptPasswordEncoder.class);
+    private PasswordEncoder encoder = mock(PasswordEncoder.class);
 
     @Before
     public void setUp() {
         userController = new UserController();
         TestUtils.injectObject(userController, "userRepository", userRepo);
         TestUtils.injectObject(userController, "cartRepository", cartRepo);
-        TestUtils.injectObject(userController, "bCryptPasswordEncoder", encoder);
+        TestUtils.injectObject(userController, "passwordEncoder", encoder);
+        TestUtils.injectObject(userController, "userCache", new UserCache(userRepo));
     }
 
     @Test
@@ -54,6 +61,18 @@ public class UserControllerTest {
         assertEquals("thisIsHashed", u.getPassword());
     }
 
+    @Test
+    public void create_user_when_hashing_is_saturated() throws Exception {
+        when(encoder.encode(PASSWORD)).thenThrow(new PasswordHashingRejectedException("full"));
+
+        final ResponseEntity<User> response = userController.createUser(createMockUserRequest());
+
+        assertEquals(503, response.getStatusCodeValue());
+        assertEquals("1", response.getHeaders().getFirst("Retry-After"));
+        verify(cartRepo, never()).save(any());
+        verify(userRepo, never()).save(any());
+    }
+
     @Test
     public void find_user_by_valid_id() throws Exception {
         when(userRepo.findById(USER_ID)).thenReturn(Optional.of(createMockUser()));
@@ -108,6 +127,25 @@ public class UserControllerTest {
         assertEquals(404, response.getStatusCodeValue());
     }
 
+    @Test
+    public void find_user_by_name_is_cached_until_user_is_created() throws Exception {
+        UserCache userCache = new UserCache(userRepo);
+        TestUtils.injectObject(userController, "userCache", userCache);
+        when(userRepo.findByUsername(USERNAME)).thenReturn(createMockUser());
+        when(encoder.encode(PASSWORD)).thenReturn("thisIsHashed");
+
+        userController.findByUserName(USERNAME);
+        userController.findByUserName(USERNAME);
+        assertEquals(1, userCache.getHitCount());
+        assertEquals(1, userCache.getMissCount());
+
+        // Creating the user drops the cached entry
+        userController.createUser(createMockUserRequest());
+        userController.findByUserName(USERNAME);
+        assertEquals(2, userCache.getMissCount());
+        verify(userRepo, times(2)).findByUsername(USERNAME);
+    }
+
     private CreateUserRequest createMockUserRequest() {
         CreateUserRequest req = new CreateUserRequest();
         req.setUsername(USERNAME);
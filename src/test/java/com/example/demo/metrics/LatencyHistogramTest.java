@@ -0,0 +1,47 @@
+package com.example.demo.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void buckets_cover_values_contiguously() {
+        long previousHighest = -1;
+        for (int bucket = 0; bucket < LatencyHistogram.bucketOf(1L << 40); bucket++) {
+            long highest = LatencyHistogram.highestValueIn(bucket);
+            // Every value between two bucket bounds maps to the later bucket
+            assertEquals(bucket, LatencyHistogram.bucketOf(previousHighest + 1));
+            assertEquals(bucket, LatencyHistogram.bucketOf(highest));
+            previousHighest = highest;
+        }
+    }
+
+    @Test
+    public void percentiles_within_bucket_precision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000L, histogram.getMax());
+        assertWithinPrecision(5_000_000L, histogram.valueAtPercentile(50));
+        assertWithinPrecision(9_900_000L, histogram.valueAtPercentile(99));
+        assertEquals(10_000_000L, histogram.valueAtPercentile(100));
+    }
+
+    @Test
+    public void empty_histogram_reports_zero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.valueAtPercentile(99));
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 16);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.demo.model.persistence;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CartTest {
+    private static final int ITEMS = 100;
+
+    @Test
+    public void order_lines_follow_every_change() {
+        List<Item> items = createItems();
+        Cart cart = new Cart();
+        cart.keepOrderLines();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            Item item = items.get(random.nextInt(ITEMS));
+            int quantity = 1 + random.nextInt(3);
+            if (random.nextBoolean()) {
+                cart.addItem(item, quantity);
+            } else {
+                cart.removeItem(item, quantity);
+            }
+            assertMatchesLines(cart);
+        }
+    }
+
+    @Test
+    public void order_lines_are_built_when_not_kept() {
+        List<Item> items = createItems();
+        Cart cart = new Cart();
+        for (Item item : items) {
+            cart.addItem(item, 2);
+        }
+        List<OrderLine> taken = cart.getOrderLines();
+        assertNotSame(taken, cart.getOrderLines());
+
+        cart.removeItem(items.get(0), 2);
+        assertEquals(ITEMS, taken.size());
+        assertEquals(0L, taken.get(0).getItemId());
+        assertMatchesLines(cart);
+    }
+
+    @Test
+    public void taken_order_lines_do_not_change() {
+        List<Item> items = createItems();
+        Cart cart = new Cart();
+        cart.keepOrderLines();
+        for (Item item : items) {
+            cart.addItem(item, 2);
+        }
+        List<OrderLine> taken = cart.getOrderLines();
+        int takenUnits = cart.getUnitCount();
+
+        cart.removeItem(items.get(0), 2);
+        cart.addItem(items.get(50), 5);
+        cart.clear();
+
+        assertEquals(ITEMS, taken.size());
+        assertEquals(2 * ITEMS, takenUnits);
+        assertEquals(0L, taken.get(0).getItemId());
+        assertEquals(2, taken.get(50).getQuantity());
+        assertTrue(cart.getOrderLines().isEmpty());
+    }
+
+    @Test
+    public void copy_shares_order_lines() {
+        List<Item> items = createItems();
+        Cart cart = new Cart();
+        cart.keepOrderLines();
+        cart.addItem(items.get(0), 3);
+        List<OrderLine> taken = cart.getOrderLines();
+
+        Cart copy = cart.copy();
+        assertSame(taken, copy.getOrderLines());
+
+        copy.addItem(items.get(1), 1);
+        assertEquals(2, copy.getOrderLines().size());
+        assertSame(taken, cart.getOrderLines());
+        assertMatchesLines(copy);
+    }
+
+    private static void assertMatchesLines(Cart cart) {
+        List<OrderLine> ordered = cart.getOrderLines();
+        assertEquals(cart.getLines().size(), ordered.size());
+        int units = 0;
+        for (int i = 0; i < ordered.size(); i++) {
+            CartLine line = cart.getLines().get(i);
+            assertEquals(line.getItemId().longValue(), ordered.get(i).getItemId());
+            assertEquals(line.getQuantity(), ordered.get(i).getQuantity());
+            assertEquals(line.getUnitPriceCents(), ordered.get(i).getUnitPriceCents());
+            units += line.getQuantity();
+        }
+        assertEquals(units, cart.getUnitCount());
+    }
+
+    private static List<Item> createItems() {
+        List<Item> items = new ArrayList<>(ITEMS);
+        for (int i = 0; i < ITEMS; i++) {
+            Item item = new Item();
+            item.setId((long) i);
+            item.setName("Item " + i);
+            item.setPrice(BigDecimal.valueOf(100 + i, 2));
+            items.add(item);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.demo.security;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BoundedPasswordEncoderTest {
+    private ThreadPoolExecutor executor;
+
+    private BoundedPasswordEncoder encoder;
+
+    @Before
+    public void setUp() {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        encoder = new BoundedPasswordEncoder(4, executor, Duration.ofSeconds(5), Duration.ofSeconds(5));
+    }
+
+    @After
+    public void tearDown() {
+        encoder.shutdown();
+    }
+
+    @Test
+    public void encode_and_match_on_pool() {
+        String hash = encoder.encode("testPassword");
+
+        assertTrue(encoder.matches("testPassword", hash));
+        assertFalse(encoder.matches("wrongPassword", hash));
+        assertEquals(0, encoder.getRejectionCount());
+    }
+
+    @Test
+    public void rejects_when_queue_is_full() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        // One task occupies the only thread, the next fills the queue
+        executor.execute(() -> awaitQuietly(release));
+        executor.execute(() -> awaitQuietly(release));
+
+        try {
+            encoder.encode("testPassword");
+            fail("Expected the saturated pool to reject the hash");
+        } catch (PasswordHashingRejectedException expected) {
+            assertEquals(1, encoder.getRejectionCount());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void rejects_when_hash_times_out() {
+        encoder = new BoundedPasswordEncoder(4, executor, Duration.ofSeconds(5), Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> awaitQuietly(release));
+
+        try {
+            encoder.encode("testPassword");
+            fail("Expected the queued hash to time out");
+        } catch (PasswordHashingRejectedException expected) {
+            assertEquals(1, encoder.getRejectionCount());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void gives_up_on_hash_that_does_not_start_in_time() throws Exception {
+        encoder = new BoundedPasswordEncoder(4, executor, Duration.ofMillis(50), Duration.ofSeconds(5));
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> awaitQuietly(release));
+
+        long start = System.nanoTime();
+        try {
+            encoder.encode("testPassword");
+            fail("Expected the queued hash to be given up");
+        } catch (PasswordHashingRejectedException expected) {
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+            assertEquals(1, encoder.getRejectionCount());
+            // The abandoned hash no longer holds its queue slot
+            assertEquals(0, encoder.getQueueSize());
+        } finally {
+            release.countDown();
+        }
+        assertTrue(encoder.matches("testPassword", encoder.encode("testPassword")));
+    }
+
+    @Test
+    public void upgrade_encoding_when_cost_changes() {
+        assertFalse(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("testPassword")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(5).encode("testPassword")));
+        assertFalse(encoder.upgradeEncoding("not a bcrypt hash"));
+        assertFalse(encoder.upgradeEncoding(null));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JWTTokenVerifierTest {
+    private static final Algorithm ALGORITHM = Algorithm.HMAC512(SecurityConstants.SECRET.getBytes());
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JWTTokenVerifier tokenVerifier;
+
+    @Before
+    public void setUp() {
+        Map<String, String> secrets = new HashMap<>();
+        secrets.put("current", SecurityConstants.SECRET);
+        secrets.put("previous", "previouskey");
+        tokenVerifier = new JWTTokenVerifier(SigningKeys.of("current", secrets), 2);
+    }
+
+    @Test
+    public void verify_caches_valid_token() {
+        String token = createToken("test", 60_000);
+
+        assertEquals("test", tokenVerifier.verify(token));
+        assertEquals("test", tokenVerifier.verify(token));
+
+        // First call verifies the signature, second is served from the cache
+        assertEquals(1, tokenVerifier.getMissCount());
+        assertEquals(1, tokenVerifier.getHitCount());
+    }
+
+    @Test
+    public void verify_evicts_soonest_expiring_token_when_full() {
+        String first = createToken("first", 30_000);
+        String second = createToken("second", 60_000);
+        String third = createToken("third", 90_000);
+
+        tokenVerifier.verify(first);
+        tokenVerifier.verify(second);
+        tokenVerifier.verify(third);
+        assertEquals(2, tokenVerifier.size());
+
+        // The entry expiring first was dropped, the later ones are still cached
+        tokenVerifier.verify(second);
+        tokenVerifier.verify(third);
+        assertEquals(2, tokenVerifier.getHitCount());
+        tokenVerifier.verify(first);
+        assertEquals(4, tokenVerifier.getMissCount());
+    }
+
+    @Test(expected = JWTVerificationException.class)
+    public void verify_rejects_token_signed_with_other_key() {
+        String token = JWT.create()
+                .withSubject("test")
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60_000))
+                .sign(Algorithm.HMAC512("otherkey".getBytes()));
+
+        tokenVerifier.verify(token);
+    }
+
+    @Test
+    public void verify_accepts_token_signed_with_previous_key() {
+        String token = JWT.create()
+                .withKeyId("previous")
+                .withSubject("test")
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60_000))
+                .sign(Algorithm.HMAC512("previouskey".getBytes()));
+
+        assertEquals("test", tokenVerifier.verify(token));
+    }
+
+    @Test(expected = JWTVerificationException.class)
+    public void verify_rejects_unknown_key_id() {
+        String token = JWT.create()
+                .withKeyId("unknown")
+                .withSubject("test")
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60_000))
+                .sign(ALGORITHM);
+
+        tokenVerifier.verify(token);
+    }
+
+    @Test
+    public void reloaded_keys_rotate_signing_and_withdraw_removed_key() throws Exception {
+        File keysFile = folder.newFile("jwt-keys.properties");
+        writeKeys(keysFile, "active=one\nkey.one=firstsecret\n", 1_000);
+        SigningKeys signingKeys = new SigningKeys(keysFile.getPath(), Duration.ZERO);
+        tokenVerifier = new JWTTokenVerifier(signingKeys, 2);
+        String oldToken = TokenService.createToken("test", signingKeys.active(), 60_000);
+        assertEquals("test", tokenVerifier.verify(oldToken));
+
+        // Rotate: sign with the new key, keep accepting the old one
+        writeKeys(keysFile, "active=two\nkey.one=firstsecret\nkey.two=secondsecret\n", 2_000);
+        assertTrue(signingKeys.reloadIfModified());
+        String newToken = TokenService.createToken("test", signingKeys.active(), 60_000);
+        assertEquals("two", JWT.decode(newToken).getKeyId());
+        assertEquals("test", tokenVerifier.verify(oldToken));
+        assertEquals("test", tokenVerifier.verify(newToken));
+
+        // A broken file keeps the current keys
+        writeKeys(keysFile, "active=three\n", 3_000);
+        assertFalse(signingKeys.reloadIfModified());
+        assertEquals("two", signingKeys.active().getId());
+
+        // Withdrawing the old key also invalidates tokens verified with it before
+        writeKeys(keysFile, "active=two\nkey.two=secondsecret\n", 4_000);
+        assertTrue(signingKeys.reloadIfModified());
+        assertEquals("test", tokenVerifier.verify(newToken));
+        try {
+            tokenVerifier.verify(oldToken);
+            fail("Expected the withdrawn key to be rejected");
+        } catch (JWTVerificationException expected) {
+        }
+    }
+
+    private static void writeKeys(File file, String content, long modified) throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        assertTrue(file.setLastModified(modified));
+    }
+
+    private String createToken(String subject, long ttl) {
+        return JWT.create()
+                .withSubject(subject)
+                .withExpiresAt(new Date(System.currentTimeMillis() + ttl))
+                .sign(ALGORITHM);
+    }
+}
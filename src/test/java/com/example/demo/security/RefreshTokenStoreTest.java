@@ -0,0 +1,50 @@
+package com.example.demo.security;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+
+public class RefreshTokenStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void token_is_redeemed_once() {
+        RefreshTokenStore store = new RefreshTokenStore(Duration.ofMinutes(1), "");
+        String token = store.issue("test");
+
+        assertEquals("test", store.redeem(token));
+        assertNull(store.redeem(token));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void expired_and_malformed_tokens_are_rejected() {
+        RefreshTokenStore store = new RefreshTokenStore(Duration.ZERO, "");
+
+        assertNull(store.redeem(store.issue("test")));
+        assertNull(store.redeem("not a token"));
+        assertNull(store.redeem("c2hvcnQ"));
+    }
+
+    @Test
+    public void tokens_survive_save_and_load() throws Exception {
+        String file = new File(folder.getRoot(), "refresh-tokens.bin").getPath();
+        RefreshTokenStore store = new RefreshTokenStore(Duration.ofMinutes(1), file);
+        String first = store.issue("first");
+        String second = store.issue("second");
+        store.save();
+
+        RefreshTokenStore restarted = new RefreshTokenStore(Duration.ofMinutes(1), file);
+        restarted.load();
+
+        assertEquals(2, restarted.size());
+        assertEquals("first", restarted.redeem(first));
+        assertEquals("second", restarted.redeem(second));
+    }
+}